@@ -0,0 +1,195 @@
+package org.toskan4134.NaturalRegeneration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Offline benchmark of the damage path, kept in the bench source set so it is not
+ * shipped in the plugin jar.
+ *
+ * burst: every world thread feeds 10,000 damage events per tick (an AoE burst over
+ * 2,000 entities, 5 hits each) into the {@link DamageTracker}, either directly per
+ * event, through one buffer shared by all worlds behind a lock, or through one
+ * buffer per world as the plugin does (merging same-tick hits in both buffered
+ * modes, like the damage listener), and reports the time per event.
+ *
+ * poison: one world where a poison cloud hits 1,000 entities 4 times per tick for
+ * 2 minutes, either appending every hit or merging same-tick hits first as the damage
+ * listener does, and reports the time per hit and how many events reached the tracker.
+ *
+ * Usage:
+ *   ./gradlew damageBenchmark --args="burst [worlds]"
+ *   ./gradlew damageBenchmark --args="poison"
+ */
+public final class DamageBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final long TICK_MS = 33L;
+    private static final long DELAY_MS = 5_000L;
+
+    private static final int BURST_EVENTS = 10_000;
+    private static final int BURST_ENTITIES = 2_000;
+    private static final int BURST_TICKS = 300;
+
+    private static final int POISON_ENTITIES = 1_000;
+    private static final int POISON_HITS = 4;
+    private static final int POISON_TICKS = 30 * 120;
+
+    private DamageBenchmark() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length >= 1 && args[0].equals("poison")) {
+            poison();
+            return;
+        }
+        if (args.length < 1 || !args[0].equals("burst")) {
+            System.err.println("Usage: DamageBenchmark burst [worlds] | poison");
+            System.exit(2);
+        }
+        int worlds = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        burst(worlds);
+    }
+
+    private static void poison() {
+        System.out.println("Poison cloud: " + POISON_ENTITIES + " entities x " + POISON_HITS + " hits x "
+                + POISON_TICKS + " ticks");
+        Object[] keys = newKeys(POISON_ENTITIES);
+        long hits = (long) POISON_ENTITIES * POISON_HITS * POISON_TICKS;
+        for (boolean merge : new boolean[]{false, true}) {
+            runPoison(keys, merge);
+            long best = Long.MAX_VALUE;
+            long appended = 0L;
+            for (int round = 0; round < ROUNDS; round++) {
+                DamageEventBuffer buffer = new DamageEventBuffer();
+                best = Math.min(best, runPoison(buffer, keys, merge));
+                appended = hits - buffer.getMergedHits();
+            }
+            System.out.printf("  %-10s %6.1f ns/hit, %d of %d hits appended%n", merge ? "merged" : "every hit",
+                    (double) best / hits, appended, hits);
+        }
+    }
+
+    private static long runPoison(Object[] keys, boolean merge) {
+        return runPoison(new DamageEventBuffer(), keys, merge);
+    }
+
+    /**
+     * Runs the poison cloud on one world thread.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    private static long runPoison(DamageEventBuffer buffer, Object[] keys, boolean merge) {
+        DamageTracker.clearAll();
+        // Hits of a tick land within it, as they would between two world ticks
+        long base = System.currentTimeMillis() / TICK_MS * TICK_MS;
+        long begin = System.nanoTime();
+        for (int tick = 0; tick < POISON_TICKS; tick++) {
+            long now = base + tick * TICK_MS;
+            for (int hit = 0; hit < POISON_HITS; hit++) {
+                long time = now + hit * 5L;
+                for (Object key : keys) {
+                    if (!merge || !buffer.mergeSameTick(key, time, 0.5f, DELAY_MS)) {
+                        buffer.append(key, time, 0.5f, DELAY_MS);
+                    }
+                }
+            }
+            buffer.drain();
+        }
+        return System.nanoTime() - begin;
+    }
+
+    private static void burst(int worlds) throws InterruptedException {
+        System.out.println("Burst: " + worlds + " worlds x " + BURST_TICKS + " ticks x " + BURST_EVENTS
+                + " events over " + BURST_ENTITIES + " entities each");
+        Object[][] keys = new Object[worlds][];
+        for (int w = 0; w < worlds; w++) {
+            keys[w] = newKeys(BURST_ENTITIES);
+        }
+        // Warm up once, then keep the best of the measured rounds
+        for (String mode : new String[]{"direct", "shared", "per-world"}) {
+            runBurst(mode, keys);
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                best = Math.min(best, runBurst(mode, keys));
+            }
+            long events = (long) worlds * BURST_TICKS * BURST_EVENTS;
+            System.out.printf("  %-10s %6.1f ns/event, %6.1f M events/s%n", mode,
+                    (double) best / events, events * 1000.0 / best);
+        }
+    }
+
+    /**
+     * Runs one burst over all worlds in parallel.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    private static long runBurst(String mode, Object[][] keys) throws InterruptedException {
+        DamageTracker.clearAll();
+        int worlds = keys.length;
+        DamageEventBuffer shared = new DamageEventBuffer();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(worlds);
+        List<Thread> threads = new ArrayList<>(worlds);
+        long base = System.currentTimeMillis();
+        boolean direct = mode.equals("direct");
+        for (int w = 0; w < worlds; w++) {
+            Object[] worldKeys = keys[w];
+            DamageEventBuffer buffer = mode.equals("shared") ? shared : new DamageEventBuffer();
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int tick = 0; tick < BURST_TICKS; tick++) {
+                    long now = base + tick * TICK_MS;
+                    for (int i = 0; i < BURST_EVENTS; i++) {
+                        Object key = worldKeys[i % worldKeys.length];
+                        if (direct) {
+                            DamageTracker.onDamageReceived(key, 1.0f, now, DELAY_MS);
+                        } else if (buffer == shared) {
+                            synchronized (shared) {
+                                if (!shared.mergeSameTick(key, now, 1.0f, DELAY_MS)) {
+                                    shared.append(key, now, 1.0f, DELAY_MS);
+                                }
+                            }
+                        } else if (!buffer.mergeSameTick(key, now, 1.0f, DELAY_MS)) {
+                            buffer.append(key, now, 1.0f, DELAY_MS);
+                        }
+                    }
+                    if (buffer == shared) {
+                        synchronized (shared) {
+                            shared.drain();
+                        }
+                    } else if (!direct) {
+                        buffer.drain();
+                    }
+                }
+                done.countDown();
+            }, "NaturalRegeneration-Benchmark-" + w);
+            threads.add(thread);
+            thread.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return elapsed;
+    }
+
+    /**
+     * Creates entity keys; like entity Refs they hash by identity.
+     */
+    private static Object[] newKeys(int count) {
+        Object[] keys = new Object[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = new Object();
+        }
+        return keys;
+    }
+}
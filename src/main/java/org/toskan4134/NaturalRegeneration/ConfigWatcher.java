@@ -0,0 +1,117 @@
+package org.toskan4134.NaturalRegeneration;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the plugin's config directory and reloads the configuration when
+ * the config file is edited on disk.
+ * Events are debounced so an editor writing the file in several steps only
+ * triggers one reload, and our own saves (the file holds exactly what we last
+ * wrote) are ignored.
+ */
+public class ConfigWatcher {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    // Quiet period required before reloading
+    private static final long DEBOUNCE_MS = 500L;
+
+    private final RegenConfigManager configManager;
+
+    private WatchService watchService;
+    private Thread thread;
+
+    public ConfigWatcher(@Nonnull RegenConfigManager configManager) {
+        this.configManager = configManager;
+    }
+
+    /**
+     * Starts watching the config directory on a daemon thread.
+     */
+    public void start() {
+        Path configPath = configManager.getConfigPath();
+        Path directory = configPath.getParent();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            LOGGER.atWarning().log("Could not watch " + directory + " for config changes: " + e.getMessage());
+            return;
+        }
+
+        // The thread keeps its own reference: stop() clears the field
+        WatchService service = watchService;
+        thread = new Thread(() -> run(service, configPath.getFileName()), "NaturalRegeneration-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.atInfo().log("Watching " + configPath + " for changes");
+    }
+
+    /**
+     * Stops watching the config directory.
+     */
+    public void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // Ignore, we are shutting down
+            }
+            watchService = null;
+        }
+        thread = null;
+    }
+
+    private void run(WatchService service, Path fileName) {
+        try {
+            while (true) {
+                boolean changed = drain(service.take(), fileName);
+
+                // Debounce: wait until no more events arrive for DEBOUNCE_MS
+                WatchKey next;
+                while ((next = service.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(next, fileName);
+                }
+
+                if (!changed) {
+                    continue;
+                }
+                // Skip events caused by our own saves, however close an edit comes after one
+                if (configManager.isOwnSave()) {
+                    continue;
+                }
+
+                configManager.reload().exceptionally(ex -> {
+                    LOGGER.atWarning().log("Failed to reload configuration: " + ex.getMessage());
+                    return null;
+                });
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Watcher stopped
+        }
+    }
+
+    private boolean drain(WatchKey key, Path fileName) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (fileName.equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+}
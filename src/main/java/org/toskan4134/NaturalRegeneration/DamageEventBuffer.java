@@ -0,0 +1,312 @@
+package org.toskan4134.NaturalRegeneration;
+
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Preallocated buffer of one world's damage events.
+ * The damage listener appends primitives here instead of writing to the shared
+ * {@link DamageTracker} map per event; the regeneration system drains the buffer
+ * once per tick. Each world has its own buffer (see {@link DamageEvents}), filled
+ * and drained only on that world's thread, so appending takes no lock at all.
+ * A burst larger than the buffer grows it and is applied by the next drain, never
+ * inline on the damage path, and the buffer shrinks back once damage is back to
+ * normal. Repeated hits on an entity in the same tick (e.g. a
+ * poison cloud) are merged into its first event before their delay is resolved.
+ */
+public class DamageEventBuffer {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    static final int DEFAULT_CAPACITY = 4096;
+
+    // Player UUID or NPC key of each event, cleared once drained
+    private Object[] keys;
+    private long[] timestamps;
+    private long[] delaysMs;
+    private float[] amounts;
+    // Hits merged into each event, for the telemetry hit count
+    private int[] hits;
+
+    // Latest event of each key since the last drain, open-addressed (twice the event capacity)
+    private Object[] slotKeys;
+    private int[] slotEvents;
+    // Slot found by the last mergeSameTick that did not merge, reused by the append that follows
+    @Nullable
+    private Object missedKey;
+    private int missedSlot;
+
+    // Size the buffer shrinks back to after a burst
+    private final int initialCapacity;
+
+    // Only accessed from the world thread
+    private int size;
+    private boolean grown;
+    // Read by other worlds to drop the buffer of a world that stopped ticking
+    private volatile long lastDrainNanos = System.nanoTime();
+
+    private long growths = 0L;
+    private long skippedWrites = 0L;
+    private long mergedHits = 0L;
+
+    // Records drained events while a trace is being recorded
+    @Nullable
+    private final TraceRecorder recorder;
+
+    // Adds drained damage to the per-player telemetry of the buffer's world while it is enabled
+    @Nullable
+    private final RegenTelemetry telemetry;
+    @Nullable
+    private final Store<EntityStore> world;
+
+    // Shares players' damage state with other servers whenever a drained event changes it
+    @Nullable
+    private final DamageStateStore damageStore;
+
+    public DamageEventBuffer() {
+        this(DEFAULT_CAPACITY, null, null, null, null);
+    }
+
+    public DamageEventBuffer(@Nullable TraceRecorder recorder, @Nullable RegenTelemetry telemetry,
+                             @Nullable Store<EntityStore> world, @Nullable DamageStateStore damageStore) {
+        this(DEFAULT_CAPACITY, recorder, telemetry, world, damageStore);
+    }
+
+    public DamageEventBuffer(int capacity, @Nullable TraceRecorder recorder, @Nullable RegenTelemetry telemetry,
+                             @Nullable Store<EntityStore> world, @Nullable DamageStateStore damageStore) {
+        this.recorder = recorder;
+        this.telemetry = telemetry;
+        this.world = world;
+        this.damageStore = damageStore;
+        this.initialCapacity = capacity;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        timestamps = new long[capacity];
+        delaysMs = new long[capacity];
+        amounts = new float[capacity];
+        hits = new int[capacity];
+        slotKeys = new Object[tableSize(capacity)];
+        slotEvents = new int[slotKeys.length];
+    }
+
+    /**
+     * Merges a hit into the entity's event from earlier in the same tick, if that event
+     * already blocks regeneration for at least the longest possible delay. The damage
+     * listener calls this before resolving the damage rules, and appends only when it
+     * returns false.
+     * @param key Player UUID or NPC key
+     * @param timestamp Time of the damage in milliseconds
+     * @param damageAmount Amount of damage received
+     * @param maxDelayMs Longest delay this damage could resolve to
+     * @return true if the hit was merged and must not be appended
+     */
+    public boolean mergeSameTick(@Nonnull Object key, long timestamp, float damageAmount, long maxDelayMs) {
+        if (size == 0) {
+            return false;
+        }
+        int slot = findSlot(key);
+        missedKey = key;
+        missedSlot = slot;
+        if (slotKeys[slot] == null) {
+            return false;
+        }
+        int event = slotEvents[slot];
+        long last = timestamps[event];
+        if (DamageTracker.toTick(last, false) != DamageTracker.toTick(timestamp, false)
+                || DamageTracker.toTick(last + delaysMs[event], true) < DamageTracker.toTick(timestamp + maxDelayMs, true)) {
+            return false;
+        }
+        // Same tick and the delay cannot grow: the record would not change, keep the damage total only
+        amounts[event] += damageAmount;
+        hits[event]++;
+        mergedHits++;
+        missedKey = null;
+        return true;
+    }
+
+    /**
+     * Appends a damage event.
+     * @param key Player UUID or NPC key
+     * @param timestamp Time of the damage in milliseconds
+     * @param damageAmount Amount of damage received
+     * @param delayMs Regeneration delay for this damage
+     */
+    public void append(@Nonnull Object key, long timestamp, float damageAmount, long delayMs) {
+        if (size == keys.length) {
+            // Burst larger than the buffer: keep it for the next drain
+            grow();
+            missedKey = null;
+        }
+        keys[size] = key;
+        timestamps[size] = timestamp;
+        amounts[size] = damageAmount;
+        delaysMs[size] = delayMs;
+        hits[size] = 1;
+        int slot = key == missedKey ? missedSlot : findSlot(key);
+        missedKey = null;
+        slotKeys[slot] = key;
+        slotEvents[slot] = size;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        delaysMs = Arrays.copyOf(delaysMs, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        hits = Arrays.copyOf(hits, capacity);
+        grown = true;
+        growths++;
+
+        // Rebuild the key table at the new size
+        slotKeys = new Object[tableSize(capacity)];
+        slotEvents = new int[slotKeys.length];
+        for (int i = 0; i < size; i++) {
+            int slot = findSlot(keys[i]);
+            slotKeys[slot] = keys[i];
+            slotEvents[slot] = i;
+        }
+    }
+
+    private static int tableSize(int capacity) {
+        return Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) << 1;
+    }
+
+    /**
+     * Finds the table slot of a key, or the empty slot where it belongs.
+     * The table is at least twice the events, so there is always an empty slot.
+     */
+    private int findSlot(Object key) {
+        int mask = slotKeys.length - 1;
+        int h = key.hashCode();
+        int slot = (h ^ (h >>> 16)) & mask;
+        Object current;
+        while ((current = slotKeys[slot]) != null) {
+            if (current == key || current.equals(key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Applies all buffered events to the {@link DamageTracker}.
+     * @return the number of events applied
+     */
+    public int drain() {
+        lastDrainNanos = System.nanoTime();
+        int drained = size;
+        RegenJfr.DamageBurstEvent event = new RegenJfr.DamageBurstEvent();
+        event.begin();
+        boolean profiled = drained > 0 && event.isEnabled();
+        float damage = 0f;
+        boolean tracing = recorder != null && recorder.isRecording();
+        RegenTelemetry.Shard measuring = telemetry != null && world != null && telemetry.isEnabled()
+                ? telemetry.get(world) : null;
+        for (int i = 0; i < drained; i++) {
+            Object key = keys[i];
+            keys[i] = null;
+            if (delaysMs[i] == 0L) {
+                // Damage that never delays regeneration is not recorded, so StatRules ignore it too
+                skippedWrites++;
+            } else if (!DamageTracker.onDamageReceived(key, amounts[i], timestamps[i], delaysMs[i])) {
+                skippedWrites++;
+            } else if (damageStore != null && key instanceof UUID) {
+                publish((UUID) key);
+            }
+            if (tracing) {
+                recorder.recordDamage(key, timestamps[i], amounts[i], delaysMs[i]);
+            }
+            if (measuring != null) {
+                measuring.recordDamage(key, amounts[i], hits[i]);
+            }
+            if (profiled) {
+                damage += amounts[i];
+            }
+        }
+        size = 0;
+        if (drained > 0) {
+            Arrays.fill(slotKeys, null);
+            LOGGER.atFine().log("Drained " + drained + " damage events");
+        }
+        if (profiled) {
+            event.events = drained;
+            event.damage = damage;
+            event.overflow = grown;
+            event.commit();
+        }
+        grown = false;
+
+        // Give back a past burst's arrays once a drain uses less than a quarter of them
+        if (keys.length > initialCapacity && drained < keys.length / 4) {
+            allocate(initialCapacity);
+            missedKey = null;
+        }
+        return drained;
+    }
+
+    /**
+     * Publishes a player's damage record after a drained event changed it.
+     */
+    private void publish(UUID uuid) {
+        DamageTracker.DamageRecord record = DamageTracker.getRecord(uuid);
+        if (record != null) {
+            damageStore.publish(uuid, record.getLastDamageTime(), record.getRegenBlockedUntil());
+        }
+    }
+
+    /**
+     * Gets the number of events waiting to be drained.
+     */
+    public int getPendingCount() {
+        return size;
+    }
+
+    /**
+     * Gets the time of the last drain, from {@link System#nanoTime()}.
+     */
+    public long getLastDrainNanos() {
+        return lastDrainNanos;
+    }
+
+    /**
+     * Gets the current number of events the buffer holds before growing.
+     */
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    /**
+     * Gets how many times a burst outgrew the buffer.
+     */
+    public long getGrowths() {
+        return growths;
+    }
+
+    /**
+     * Gets how many drained events did not write a damage record: the entity was
+     * already damaged in the same tick, or the damage has no regeneration delay.
+     */
+    public long getSkippedWrites() {
+        return skippedWrites;
+    }
+
+    /**
+     * Gets how many hits were merged into an earlier event of the same tick
+     * without resolving their delay or appending them.
+     */
+    public long getMergedHits() {
+        return mergedHits;
+    }
+}
@@ -0,0 +1,56 @@
+package org.toskan4134.NaturalRegeneration;
+
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Damage event buffers, per world.
+ * Filled by the damage listener and drained by the player regeneration system,
+ * both on the world's own thread, so worlds never wait on each other's damage.
+ */
+public class DamageEvents {
+
+    private final Map<Store<EntityStore>, DamageEventBuffer> buffers = new ConcurrentHashMap<>();
+
+    @Nullable
+    private final TraceRecorder recorder;
+    @Nullable
+    private final RegenTelemetry telemetry;
+    @Nullable
+    private final DamageStateStore damageStore;
+
+    public DamageEvents(@Nullable TraceRecorder recorder, @Nullable RegenTelemetry telemetry,
+                        @Nullable DamageStateStore damageStore) {
+        this.recorder = recorder;
+        this.telemetry = telemetry;
+        this.damageStore = damageStore;
+    }
+
+    /**
+     * Drops the buffers of worlds not drained for a while (unloaded), so their stores
+     * can be collected.
+     *
+     * @param nowNanos current time, from {@link System#nanoTime()}
+     * @param maxIdleNanos how long a buffer may go without a drain
+     */
+    public void removeIdle(long nowNanos, long maxIdleNanos) {
+        buffers.values().removeIf(buffer -> nowNanos - buffer.getLastDrainNanos() >= maxIdleNanos);
+    }
+
+    /**
+     * Gets the damage events of a world.
+     */
+    @Nonnull
+    public DamageEventBuffer get(@Nonnull Store<EntityStore> store) {
+        DamageEventBuffer buffer = buffers.get(store);
+        if (buffer == null) {
+            buffer = buffers.computeIfAbsent(store, k -> new DamageEventBuffer(recorder, telemetry, k, damageStore));
+        }
+        return buffer;
+    }
+}
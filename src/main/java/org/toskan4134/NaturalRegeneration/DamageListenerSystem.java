@@ -2,13 +2,16 @@ package org.toskan4134.NaturalRegeneration;
 
 import com.hypixel.hytale.component.ArchetypeChunk;
 import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.ComponentType;
 import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.component.query.Query;
 import com.hypixel.hytale.logger.HytaleLogger;
 import com.hypixel.hytale.server.core.modules.entity.damage.Damage;
 import com.hypixel.hytale.server.core.modules.entity.damage.DamageEventSystem;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 /**
@@ -19,6 +22,21 @@ public class DamageListenerSystem extends DamageEventSystem {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
 
+    private final RegenConfigManager configManager;
+    private final DamageEvents damageEvents;
+    private final NpcRegenerationSystem npcSystem;
+
+    // Component type, resolved once instead of on every event
+    private final ComponentType<EntityStore, PlayerRef> playerRefType;
+
+    public DamageListenerSystem(@Nonnull RegenConfigManager configManager, @Nonnull DamageEvents damageEvents,
+                                @Nonnull NpcRegenerationSystem npcSystem) {
+        this.configManager = configManager;
+        this.damageEvents = damageEvents;
+        this.npcSystem = npcSystem;
+        this.playerRefType = PlayerRef.getComponentType();
+    }
+
     @Nullable
     @Override
     public Query<EntityStore> getQuery() {
@@ -39,10 +57,31 @@ public class DamageListenerSystem extends DamageEventSystem {
             return; // Not real damage
         }
 
-        // Record damage in tracker
-        // entityIndex is the index of the entity that received damage
-        DamageTracker.onDamageReceived(entityIndex, damageAmount);
+        // Players are tracked by UUID and other entities by their own UUID key, which survives a chunk reload
+        RegenSettings settings = configManager.getSettings();
+        PlayerRef playerRef = chunk.getComponent(entityIndex, playerRefType);
+        boolean npc = playerRef == null;
+        Object key = npc ? npcSystem.keyOf(entityIndex, chunk) : playerRef.getUuid();
+
+        // Further hits in the same tick (e.g. a poison cloud) usually cannot change the damage record:
+        // merge them before resolving any rule
+        DamageEventBuffer buffer = damageEvents.get(store);
+        long now = System.currentTimeMillis();
+        if (buffer.mergeSameTick(key, now, damageAmount, settings.getMaxDamageDelayMs())) {
+            return;
+        }
+
+        // Resolve the delay for this kind of damage (precompiled table lookup)
+        long delayMs = settings.getDamageRules().resolveDelayMs(damage, store, settings.getDelayMs());
+
+        // NPCs catch up on their regeneration before the damage lands
+        if (npc) {
+            npcSystem.settleOnDamage(key, entityIndex, chunk);
+        }
+
+        // Buffer the damage; the regeneration system applies it to the tracker once per tick
+        buffer.append(key, now, damageAmount, delayMs);
 
-        LOGGER.atFine().log("Entity " + entityIndex + " received " + damageAmount + " damage");
+        LOGGER.atFine().log("Entity " + key + " received " + damageAmount + " damage (regen delay " + delayMs + " ms)");
     }
 }
@@ -0,0 +1,165 @@
+package org.toskan4134.NaturalRegeneration;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.modules.entity.damage.Damage;
+import com.hypixel.hytale.server.core.modules.entity.damage.DamageCause;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+
+/**
+ * Compiled lookup table from damage source to regeneration delay.
+ * Damage cause ids are matched against the configured rules once per cause
+ * index, so classifying a damage event is an array lookup.
+ */
+public final class DamageRules {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    // Special rule sources, matched on the attacker instead of the damage cause
+    public static final String SOURCE_PLAYER = "Player";
+    public static final String SOURCE_ENTITY = "Entity";
+
+    private static final long NO_RULE = -1L;
+    private static final long UNRESOLVED = Long.MIN_VALUE;
+
+    private final long playerDelayMs;
+    private final long entityDelayMs;
+    private final String[] causeIds;
+    private final long[] causeDelaysMs;
+    // Longest delay of any rule, NO_RULE when none is configured
+    private final long maxDelayMs;
+
+    // Delay by damage cause index, grown and filled lazily as causes are seen
+    private volatile long[] delayByCause = new long[0];
+
+    private DamageRules(@Nonnull RegenConfig.DamageRule[] rules) {
+        long player = NO_RULE;
+        long entity = NO_RULE;
+        String[] ids = new String[rules.length];
+        long[] delays = new long[rules.length];
+        int count = 0;
+        for (RegenConfig.DamageRule rule : rules) {
+            if (rule == null || rule.getSource().isEmpty()) {
+                continue;
+            }
+            String source = rule.getSource();
+            if (source.equalsIgnoreCase(SOURCE_PLAYER)) {
+                player = rule.getDelayMs();
+            } else if (source.equalsIgnoreCase(SOURCE_ENTITY)) {
+                entity = rule.getDelayMs();
+            } else {
+                ids[count] = source;
+                delays[count] = rule.getDelayMs();
+                count++;
+            }
+        }
+        this.playerDelayMs = player;
+        this.entityDelayMs = entity;
+        this.causeIds = Arrays.copyOf(ids, count);
+        this.causeDelaysMs = Arrays.copyOf(delays, count);
+
+        long max = Math.max(player, entity);
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, delays[i]);
+        }
+        this.maxDelayMs = max;
+    }
+
+    /**
+     * Compiles the rules from a configuration.
+     */
+    @Nonnull
+    public static DamageRules compile(@Nonnull RegenConfig config) {
+        return new DamageRules(config.getDamageRules());
+    }
+
+    /**
+     * Checks if any rule is configured.
+     */
+    public boolean isEmpty() {
+        return playerDelayMs == NO_RULE && entityDelayMs == NO_RULE && causeIds.length == 0;
+    }
+
+    /**
+     * Gets the longest delay a damage event can resolve to.
+     *
+     * @param defaultDelayMs delay used when no rule matches
+     */
+    public long getMaxDelayMs(long defaultDelayMs) {
+        return Math.max(maxDelayMs, defaultDelayMs);
+    }
+
+    /**
+     * Resolves the regeneration delay for a damage event.
+     * Attacker rules (player/entity) take priority over damage cause rules.
+     *
+     * @param damage the damage event
+     * @param store the store the damaged entity lives in
+     * @param defaultDelayMs delay to use when no rule matches
+     * @return the delay in milliseconds
+     */
+    public long resolveDelayMs(@Nonnull Damage damage, @Nonnull Store<EntityStore> store, long defaultDelayMs) {
+        if (playerDelayMs != NO_RULE || entityDelayMs != NO_RULE) {
+            if (damage.getSource() instanceof Damage.EntitySource entitySource) {
+                Ref<EntityStore> attacker = entitySource.getRef();
+                boolean byPlayer = attacker != null && attacker.isValid()
+                        && store.getComponent(attacker, Player.getComponentType()) != null;
+                long delay = byPlayer ? playerDelayMs : entityDelayMs;
+                if (delay != NO_RULE) {
+                    return delay;
+                }
+            }
+        }
+
+        if (causeIds.length == 0) {
+            return defaultDelayMs;
+        }
+        int causeIndex = damage.getDamageCauseIndex();
+        if (causeIndex < 0) {
+            return defaultDelayMs;
+        }
+        long[] table = delayByCause;
+        long delay = causeIndex < table.length ? table[causeIndex] : UNRESOLVED;
+        if (delay == UNRESOLVED) {
+            delay = resolveCause(causeIndex);
+        }
+        return delay != NO_RULE ? delay : defaultDelayMs;
+    }
+
+    /**
+     * Matches a damage cause against the configured rules and caches the result.
+     * Runs once per cause index.
+     */
+    private long resolveCause(int causeIndex) {
+        long delay = NO_RULE;
+        DamageCause cause = DamageCause.getAssetMap().getAsset(causeIndex);
+        if (cause != null) {
+            for (int i = 0; i < causeIds.length; i++) {
+                if (causeIds[i].equalsIgnoreCase(cause.getId())) {
+                    delay = causeDelaysMs[i];
+                    break;
+                }
+            }
+            LOGGER.atFine().log("Damage cause " + cause.getId() + " -> " + (delay == NO_RULE ? "default delay" : delay + " ms"));
+        }
+
+        synchronized (this) {
+            long[] table = delayByCause;
+            if (causeIndex >= table.length) {
+                int oldLength = table.length;
+                table = Arrays.copyOf(table, Math.max(causeIndex + 1, oldLength * 2));
+                Arrays.fill(table, oldLength, table.length, UNRESOLVED);
+            } else {
+                table = table.clone();
+            }
+            table[causeIndex] = delay;
+            delayByCause = table;
+        }
+        return delay;
+    }
+}
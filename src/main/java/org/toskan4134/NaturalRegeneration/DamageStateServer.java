@@ -0,0 +1,169 @@
+package org.toskan4134.NaturalRegeneration;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal damage state server for {@link SocketDamageStateStore}.
+ * Keeps every player's latest damage state in memory and answers lookups.
+ * It is small enough to run next to a proxy, or in-process as a stand-in
+ * when testing several servers locally.
+ *
+ * Protocol (big-endian, one connection per game server):
+ *   PUT | count (4) | count x [ uuid (16) | last damage ms (8) | blocked until ms (8) ]   (count <= {@value #MAX_PUT_COUNT})
+ *   GET | uuid (16)  -> found (1) [ | last damage ms (8) | blocked until ms (8) ]
+ *
+ * The protocol has no authentication, so the server listens on loopback unless
+ * another bind address is given; only bind it to a private network.
+ *
+ * Usage:
+ *   java -cp NaturalRegeneration.jar:HytaleServer.jar org.toskan4134.NaturalRegeneration.DamageStateServer [port] [bind address]
+ */
+public class DamageStateServer implements Closeable {
+
+    static final int DEFAULT_PORT = 25590;
+
+    static final byte OP_PUT = 1;
+    static final byte OP_GET = 2;
+
+    private static final long CLEANUP_INTERVAL_MS = 60_000L;
+
+    // One connection per game server; more than this is refused
+    static final int MAX_CLIENTS = 64;
+
+    // Most states in one PUT; a client sending a larger or negative count is disconnected
+    static final int MAX_PUT_COUNT = 10_000;
+
+    private final ServerSocket serverSocket;
+    private final Map<UUID, DamageStateStore.DamageState> states = new ConcurrentHashMap<>();
+    private volatile long lastCleanupTime = 0L;
+    private final AtomicInteger clients = new AtomicInteger();
+
+    /**
+     * Opens the server on the given port (0 for any free port) and starts accepting connections.
+     *
+     * @param bindAddress the address to listen on
+     * @param port the port to listen on
+     * @throws IOException if the port cannot be opened
+     */
+    public DamageStateServer(@Nonnull InetAddress bindAddress, int port) throws IOException {
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(bindAddress, port));
+        Thread acceptor = new Thread(this::acceptLoop, "NaturalRegeneration-DamageStateServer");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        InetAddress bindAddress = args.length > 1 ? InetAddress.getByName(args[1]) : InetAddress.getLoopbackAddress();
+        DamageStateServer server = new DamageStateServer(bindAddress, port);
+        System.out.println("Damage state server listening on " + bindAddress.getHostAddress() + ":" + server.getPort());
+        Thread.currentThread().join();
+    }
+
+    /**
+     * Gets the port the server is listening on.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the number of players with a stored state.
+     */
+    public int size() {
+        return states.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                if (clients.incrementAndGet() > MAX_CLIENTS) {
+                    clients.decrementAndGet();
+                    System.err.println("Damage state server: refused " + client.getRemoteSocketAddress()
+                            + ", already serving " + MAX_CLIENTS + " clients");
+                    client.close();
+                    continue;
+                }
+                Thread handler = new Thread(() -> serve(client),
+                        "NaturalRegeneration-DamageStateClient-" + client.getRemoteSocketAddress());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("Damage state server: accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        try (Socket socket = client;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            socket.setTcpNoDelay(true);
+            while (true) {
+                byte op = in.readByte();
+                if (op == OP_PUT) {
+                    int count = in.readInt();
+                    if (count < 0 || count > MAX_PUT_COUNT) {
+                        throw new IOException("invalid state count " + count);
+                    }
+                    for (int i = 0; i < count; i++) {
+                        UUID uuid = new UUID(in.readLong(), in.readLong());
+                        states.merge(uuid, new DamageStateStore.DamageState(in.readLong(), in.readLong()),
+                                DamageStateStore.DamageState::merge);
+                    }
+                    cleanupIfNeeded();
+                } else if (op == OP_GET) {
+                    DamageStateStore.DamageState state = states.get(new UUID(in.readLong(), in.readLong()));
+                    out.writeBoolean(state != null);
+                    if (state != null) {
+                        out.writeLong(state.getLastDamageTime());
+                        out.writeLong(state.getRegenBlockedUntil());
+                    }
+                    out.flush();
+                } else {
+                    throw new IOException("unknown operation " + op);
+                }
+            }
+        } catch (EOFException | SocketException e) {
+            // Client disconnected
+        } catch (IOException e) {
+            System.err.println("Damage state server: client failed: " + e.getMessage());
+        } finally {
+            clients.decrementAndGet();
+        }
+    }
+
+    private void cleanupIfNeeded() {
+        long now = System.currentTimeMillis();
+        if (now - lastCleanupTime < CLEANUP_INTERVAL_MS) {
+            return;
+        }
+        lastCleanupTime = now;
+        states.values().removeIf(state -> state.isExpired(now));
+    }
+}
@@ -0,0 +1,82 @@
+package org.toskan4134.NaturalRegeneration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where players' damage state is shared beyond this process, so a player hit on
+ * one server keeps the regeneration delay after transferring to another.
+ *
+ * The regeneration hot path never calls a store: it only reads the local
+ * {@link DamageTracker}. Changes are published as damage events are drained
+ * into the tracker and when a player is evicted, and a joining player's state is
+ * fetched in the background and applied like a restored snapshot.
+ */
+public interface DamageStateStore {
+
+    /**
+     * Starts the store (connections, background threads).
+     */
+    void start();
+
+    /**
+     * Publishes a player's damage state. Must not block; implementations batch
+     * and send asynchronously.
+     */
+    void publish(@Nonnull UUID uuid, long lastDamageTime, long regenBlockedUntil);
+
+    /**
+     * Fetches a player's damage state.
+     *
+     * @return a future with the state, or null if the store has none
+     */
+    @Nonnull
+    CompletableFuture<DamageState> fetch(@Nonnull UUID uuid);
+
+    /**
+     * Sends anything still batched and releases resources.
+     */
+    void close();
+
+    /**
+     * Damage state of one player as shared between servers.
+     */
+    final class DamageState {
+        private final long lastDamageTime;
+        private final long regenBlockedUntil;
+
+        public DamageState(long lastDamageTime, long regenBlockedUntil) {
+            this.lastDamageTime = lastDamageTime;
+            this.regenBlockedUntil = regenBlockedUntil;
+        }
+
+        public long getLastDamageTime() {
+            return lastDamageTime;
+        }
+
+        public long getRegenBlockedUntil() {
+            return regenBlockedUntil;
+        }
+
+        /**
+         * Checks if the state is too old to matter (same retention as the damage tracker).
+         */
+        public boolean isExpired(long now) {
+            return now - lastDamageTime > DamageTracker.MAX_RECORD_AGE_MS && now >= regenBlockedUntil;
+        }
+
+        /**
+         * Combines two states; a later or longer delay always wins.
+         */
+        @Nonnull
+        public static DamageState merge(@Nullable DamageState a, @Nonnull DamageState b) {
+            if (a == null) {
+                return b;
+            }
+            return new DamageState(Math.max(a.lastDamageTime, b.lastDamageTime),
+                    Math.max(a.regenBlockedUntil, b.regenBlockedUntil));
+        }
+    }
+}
@@ -2,23 +2,44 @@ package org.toskan4134.NaturalRegeneration;
 
 import com.hypixel.hytale.logger.HytaleLogger;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility class that tracks when an entity receives damage.
- * Stores the timestamp of the last damage received for each entity.
+ * Stores the timestamp of the last damage received for each entity and the
+ * time until which regeneration is blocked (the delay depends on the damage source).
+ *
+ * Records are keyed by the player's UUID, or by the entity's {@code Ref} for other
+ * entities, never by the chunk-local entity index: indices are reused by other
+ * entities and repeat across worlds.
+ *
+ * Times are stored as int server ticks, so the many hits of damage-over-time
+ * effects and multi-hit attacks landing in the same tick only write a record once.
+ * The last damage time is rounded down to its tick and the blocked time up, so
+ * rounding never shortens a regeneration delay.
  */
 public class DamageTracker {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
 
-    // Map storing last damage time by entity index
-    private static final Map<Integer, Long> lastDamageTime = new ConcurrentHashMap<>();
+    // Map storing damage state by player UUID or entity Ref
+    private static final Map<Object, DamageRecord> records = new ConcurrentHashMap<>();
 
     // Maximum time to keep records (10 minutes)
-    private static final long MAX_RECORD_AGE_MS = 600_000L;
+    static final long MAX_RECORD_AGE_MS = 600_000L;
+
+    // Length of one stored tick (Hytale worlds tick 30 times per second)
+    static final long TICK_MS = 33L;
+
+    // Stored tick of "never damaged"; times outside the int range are clamped to it or to MAX_VALUE
+    private static final int NEVER = Integer.MIN_VALUE;
+
+    // Origin of the stored ticks, aligned to a tick so every run rounds times the same way
+    private static final long EPOCH_MS = System.currentTimeMillis() / TICK_MS * TICK_MS;
 
     // Counter for periodic cleanup
     private static long lastCleanupTime = 0L;
@@ -26,88 +47,186 @@ public class DamageTracker {
 
     /**
      * Records that an entity has received damage.
-     * @param entityIndex Entity index in the ECS
+     * @param key Player UUID or entity Ref
+     * @param damageAmount Amount of damage received
+     * @param delayMs Time before the entity can regenerate again
      */
-    public static void onDamageReceived(int entityIndex) {
-        lastDamageTime.put(entityIndex, System.currentTimeMillis());
-        cleanupIfNeeded();
+    public static void onDamageReceived(@Nonnull Object key, float damageAmount, long delayMs) {
+        onDamageReceived(key, damageAmount, System.currentTimeMillis(), delayMs);
     }
 
     /**
-     * Records that an entity has received damage with amount.
-     * @param entityIndex Entity index
+     * Records damage that happened at a given time (used when draining buffered events).
+     * @param key Player UUID or entity Ref
      * @param damageAmount Amount of damage received
+     * @param timestamp Time of the damage in milliseconds
+     * @param delayMs Time before the entity can regenerate again
+     * @return false if the record was already current for the damage's tick and nothing was written
+     */
+    public static boolean onDamageReceived(@Nonnull Object key, float damageAmount, long timestamp, long delayMs) {
+        DamageRecord record = records.get(key);
+        if (record == null) {
+            record = records.computeIfAbsent(key, k -> new DamageRecord());
+        }
+        boolean written = record.update(toTick(timestamp, false), toTick(timestamp + delayMs, true));
+        cleanupIfNeeded(timestamp);
+        return written;
+    }
+
+    /**
+     * Restores damage state saved before a restart.
+     * Keeps the current values if they are more recent.
+     * @param key Player UUID or entity Ref
+     * @param lastDamageTime Saved timestamp of the last damage
+     * @param regenBlockedUntil Saved time until which regeneration is blocked
      */
-    public static void onDamageReceived(int entityIndex, float damageAmount) {
-        lastDamageTime.put(entityIndex, System.currentTimeMillis());
-        cleanupIfNeeded();
+    public static void restore(@Nonnull Object key, long lastDamageTime, long regenBlockedUntil) {
+        records.computeIfAbsent(key, k -> new DamageRecord())
+                .update(toTick(lastDamageTime, false), toTick(regenBlockedUntil, true));
+    }
+
+    /**
+     * Gets the damage record of an entity.
+     * @param key Player UUID or entity Ref
+     * @return The record, or null if never damaged
+     */
+    @Nullable
+    public static DamageRecord getRecord(@Nonnull Object key) {
+        return records.get(key);
     }
 
     /**
      * Gets the time of the last damage received by an entity.
-     * @param entityIndex Entity index
+     * @param key Player UUID or entity Ref
      * @return Timestamp of last damage, or 0 if never damaged
      */
-    public static long getLastDamageTime(int entityIndex) {
-        return lastDamageTime.getOrDefault(entityIndex, 0L);
+    public static long getLastDamageTime(@Nonnull Object key) {
+        DamageRecord record = records.get(key);
+        return record != null ? record.getLastDamageTime() : 0L;
     }
 
     /**
      * Checks if an entity can regenerate health.
-     * @param entityIndex Entity index
+     * @param key Player UUID or entity Ref
      * @param currentTimeMs Current time in milliseconds
-     * @param delayMs Required delay in milliseconds since last damage
-     * @return true if enough time has passed since last damage
+     * @return true if the delay of the last damage has passed
      */
-    public static boolean canRegenerate(int entityIndex, long currentTimeMs, long delayMs) {
-        Long lastDamage = lastDamageTime.get(entityIndex);
-        if (lastDamage == null) {
+    public static boolean canRegenerate(@Nonnull Object key, long currentTimeMs) {
+        DamageRecord record = records.get(key);
+        if (record == null) {
             return true; // Never received damage
         }
-        return (currentTimeMs - lastDamage) >= delayMs;
+        return currentTimeMs >= record.getRegenBlockedUntil();
     }
 
     /**
      * Clears the record for an entity.
-     * @param entityIndex Entity index
+     * @param key Player UUID or entity Ref
      */
-    public static void clearEntity(int entityIndex) {
-        lastDamageTime.remove(entityIndex);
+    public static void clearEntity(@Nonnull Object key) {
+        records.remove(key);
     }
 
     /**
      * Cleans up old records if enough time has passed.
+     * Uses the damage time as the current time, so replaying a trace cleans up
+     * exactly like the recorded run.
+     * @param currentTime Time of the damage being recorded
      */
-    private static void cleanupIfNeeded() {
-        long currentTime = System.currentTimeMillis();
+    private static void cleanupIfNeeded(long currentTime) {
         if (currentTime - lastCleanupTime < CLEANUP_INTERVAL_MS) {
             return;
         }
         lastCleanupTime = currentTime;
+        RegenJfr.DamageCleanupEvent event = new RegenJfr.DamageCleanupEvent();
+        event.begin();
 
         // Clean old entries
-        Iterator<Map.Entry<Integer, Long>> iterator = lastDamageTime.entrySet().iterator();
+        int removed = 0;
+        Iterator<Map.Entry<Object, DamageRecord>> iterator = records.entrySet().iterator();
         while (iterator.hasNext()) {
-            Map.Entry<Integer, Long> entry = iterator.next();
-            if (currentTime - entry.getValue() > MAX_RECORD_AGE_MS) {
+            DamageRecord record = iterator.next().getValue();
+            if (currentTime - record.getLastDamageTime() > MAX_RECORD_AGE_MS && currentTime >= record.getRegenBlockedUntil()) {
                 iterator.remove();
+                removed++;
             }
         }
 
-        LOGGER.atFine().log("DamageTracker cleanup: " + lastDamageTime.size() + " active entries");
+        LOGGER.atFine().log("DamageTracker cleanup: " + records.size() + " active entries");
+        if (event.isEnabled()) {
+            event.removed = removed;
+            event.remaining = records.size();
+            event.commit();
+        }
     }
 
     /**
      * Clears all records.
      */
     public static void clearAll() {
-        lastDamageTime.clear();
+        records.clear();
     }
 
     /**
      * Gets the number of active entries.
      */
     public static int getActiveCount() {
-        return lastDamageTime.size();
+        return records.size();
+    }
+
+    /**
+     * Converts a time in milliseconds to a stored tick.
+     * @param timeMs Time in milliseconds, 0 or less for never
+     * @param roundUp Round up to the next tick instead of down
+     */
+    static int toTick(long timeMs, boolean roundUp) {
+        if (timeMs <= 0L) {
+            return NEVER;
+        }
+        long tick = Math.floorDiv(timeMs - EPOCH_MS + (roundUp ? TICK_MS - 1 : 0L), TICK_MS);
+        return (int) Math.max(NEVER + 1L, Math.min(Integer.MAX_VALUE, tick));
+    }
+
+    /**
+     * Converts a stored tick back to milliseconds (0 for never).
+     */
+    static long toMillis(int tick) {
+        return tick == NEVER ? 0L : EPOCH_MS + tick * TICK_MS;
+    }
+
+    /**
+     * Damage state of one entity.
+     */
+    public static final class DamageRecord {
+        private volatile int lastDamageTick = NEVER;
+        private volatile int regenBlockedUntilTick = NEVER;
+
+        /**
+         * @return false if the record was already current and nothing was written
+         */
+        private boolean update(int damageTick, int blockedUntilTick) {
+            // Further hits in the same tick: nothing to write, no lock taken
+            if (damageTick <= lastDamageTick && blockedUntilTick <= regenBlockedUntilTick) {
+                return false;
+            }
+            synchronized (this) {
+                if (damageTick > lastDamageTick) {
+                    lastDamageTick = damageTick;
+                }
+                // A shorter delay never cancels a longer one
+                if (blockedUntilTick > regenBlockedUntilTick) {
+                    regenBlockedUntilTick = blockedUntilTick;
+                }
+            }
+            return true;
+        }
+
+        public long getLastDamageTime() {
+            return toMillis(lastDamageTick);
+        }
+
+        public long getRegenBlockedUntil() {
+            return toMillis(regenBlockedUntilTick);
+        }
     }
 }
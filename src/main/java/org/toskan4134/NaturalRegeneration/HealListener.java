@@ -0,0 +1,32 @@
+package org.toskan4134.NaturalRegeneration;
+
+import javax.annotation.Nonnull;
+import java.util.UUID;
+
+/**
+ * Listener notified around every regeneration heal.
+ * Called on the world thread, so implementations should be cheap.
+ */
+public interface HealListener {
+
+    /**
+     * Called before a heal is applied.
+     *
+     * @param player the healed player's UUID
+     * @param amount the heal about to be applied
+     * @return the amount to apply instead; 0 or less vetoes the heal
+     */
+    default float preHeal(@Nonnull UUID player, float amount) {
+        return amount;
+    }
+
+    /**
+     * Called after a heal has been applied.
+     *
+     * @param player the healed player's UUID
+     * @param amount the heal that was applied
+     * @param newHealth the player's health after the heal
+     */
+    default void postHeal(@Nonnull UUID player, float amount, float newHealth) {
+    }
+}
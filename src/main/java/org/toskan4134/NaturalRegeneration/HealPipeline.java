@@ -0,0 +1,298 @@
+package org.toskan4134.NaturalRegeneration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timed regeneration sources (food buffs, potions, resting...) handled by the
+ * regeneration tick system in the same pass as passive regeneration.
+ *
+ * Other plugins register a source type once and then apply it to players by UUID.
+ * Applications are queued per player and picked up by that player's next tick, on
+ * the thread of the world they are in, and each player's active sources are kept
+ * in a small array combined into a single heal per interval. Sources live in the player's regeneration state, so they end when
+ * the player leaves and never carry over to another entity.
+ */
+public class HealPipeline {
+
+    // How long an application waits for a player who is not being ticked yet (e.g. still joining)
+    private static final long PENDING_TIMEOUT_MS = 10_000L;
+
+    /**
+     * How a source combines with passive regeneration and other sources.
+     */
+    public enum Mode {
+        /** Adds its rate on top of passive regeneration and other stacking sources. */
+        STACK,
+        /** Replaces passive regeneration and stacking sources; the strongest override wins. */
+        OVERRIDE
+    }
+
+    /**
+     * A registered kind of regeneration source.
+     */
+    public static final class SourceType {
+        private final int id;
+        private final String name;
+        private final Mode mode;
+        private final boolean ignoresDamageDelay;
+
+        private SourceType(int id, String name, Mode mode, boolean ignoresDamageDelay) {
+            this.id = id;
+            this.name = name;
+            this.mode = mode;
+            this.ignoresDamageDelay = ignoresDamageDelay;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        public boolean ignoresDamageDelay() {
+            return ignoresDamageDelay;
+        }
+    }
+
+    private final Map<String, SourceType> typesByName = new ConcurrentHashMap<>();
+    private volatile SourceType[] typesById = new SourceType[0];
+
+    // Applications from any thread, per player, taken by the player's own tick
+    private final Map<UUID, ArrayDeque<PendingApplication>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private volatile long lastExpireTime = 0L;
+
+    /**
+     * Registers a source type, or returns the existing one with the same name.
+     *
+     * @param name unique name, e.g. "myplugin:campfire"
+     * @param mode how the source combines with others
+     * @param ignoresDamageDelay true if the source heals even while the damage delay is active
+     * @return the source type
+     */
+    @Nonnull
+    public synchronized SourceType registerSource(@Nonnull String name, @Nonnull Mode mode, boolean ignoresDamageDelay) {
+        SourceType existing = typesByName.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        SourceType[] types = typesById;
+        SourceType type = new SourceType(types.length, name, mode, ignoresDamageDelay);
+        SourceType[] grown = Arrays.copyOf(types, types.length + 1);
+        grown[type.id] = type;
+        typesById = grown;
+        typesByName.put(name, type);
+        return type;
+    }
+
+    /**
+     * Gets a registered source type by name.
+     */
+    @Nullable
+    public SourceType getSource(@Nonnull String name) {
+        return typesByName.get(name);
+    }
+
+    /**
+     * Applies a source to a player, replacing any previous application of the same source.
+     * Takes effect on the next tick; an application for a player who is not online within
+     * a few seconds is dropped.
+     *
+     * @param player the player's UUID
+     * @param type the source type
+     * @param hpPerSecond health restored per second
+     * @param durationSeconds how long the source lasts
+     */
+    public void apply(@Nonnull UUID player, @Nonnull SourceType type, float hpPerSecond, float durationSeconds) {
+        enqueue(new PendingApplication(player, type.id, hpPerSecond, durationSeconds, System.currentTimeMillis()));
+    }
+
+    /**
+     * Removes a source from a player. Takes effect on the next tick.
+     */
+    public void remove(@Nonnull UUID player, @Nonnull SourceType type) {
+        enqueue(new PendingApplication(player, type.id, 0f, 0f, System.currentTimeMillis()));
+    }
+
+    private void enqueue(PendingApplication application) {
+        // Atomic per player, so the tick taking the queue never misses an application
+        pending.compute(application.player, (k, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>(2);
+            }
+            queue.add(application);
+            return queue;
+        });
+        queued.incrementAndGet();
+    }
+
+    /**
+     * Checks if any application is waiting, so ticks can skip the per-player lookup.
+     */
+    boolean hasPending() {
+        return queued.get() != 0;
+    }
+
+    /**
+     * Moves a player's queued applications into their state. Called by the player's
+     * own tick, on the thread of their world, so the active sources are only ever
+     * changed by the thread that combines them.
+     */
+    void drain(@Nonnull UUID player, @Nonnull RegenState state) {
+        ArrayDeque<PendingApplication> queue = pending.remove(player);
+        if (queue == null) {
+            return;
+        }
+        queued.addAndGet(-queue.size());
+        for (PendingApplication application : queue) {
+            if (application.durationSeconds <= 0) {
+                if (state.healSources != null) {
+                    state.healSources.remove(application.typeId);
+                }
+                continue;
+            }
+            if (state.healSources == null) {
+                state.healSources = new ActiveSources();
+            }
+            state.healSources.set(application.typeId, application.hpPerSecond, application.durationSeconds);
+        }
+    }
+
+    /**
+     * Drops applications for players who were not ticked within the timeout
+     * (offline or never joined). Only touches the queues, never a player's sources.
+     */
+    void expire(long now) {
+        if (now - lastExpireTime < PENDING_TIMEOUT_MS) {
+            return;
+        }
+        lastExpireTime = now;
+        for (UUID player : pending.keySet()) {
+            pending.computeIfPresent(player, (k, queue) -> {
+                int before = queue.size();
+                queue.removeIf(application -> now - application.queuedAt >= PENDING_TIMEOUT_MS);
+                queued.addAndGet(queue.size() - before);
+                return queue.isEmpty() ? null : queue;
+            });
+        }
+    }
+
+    /**
+     * Combines passive regeneration with an entity's active sources for one interval,
+     * consuming the sources' remaining time.
+     *
+     * @param sources the entity's active sources
+     * @param passiveAmount passive heal for this interval (0 if blocked by damage)
+     * @param intervalSeconds length of the interval
+     * @param damageBlocked true if the damage delay is still active
+     * @return the total heal for this interval
+     */
+    float combine(@Nonnull ActiveSources sources, float passiveAmount, float intervalSeconds, boolean damageBlocked) {
+        SourceType[] types = typesById;
+        float stacked = passiveAmount;
+        float override = -1f;
+
+        int i = 0;
+        while (i < sources.count) {
+            float seconds = Math.min(intervalSeconds, sources.remaining[i]);
+            SourceType type = types[sources.typeIds[i]];
+            if (!damageBlocked || type.ignoresDamageDelay) {
+                float amount = sources.rates[i] * seconds;
+                if (type.mode == Mode.OVERRIDE) {
+                    override = Math.max(override, amount);
+                } else {
+                    stacked += amount;
+                }
+            }
+            sources.remaining[i] -= intervalSeconds;
+            if (sources.remaining[i] <= 0) {
+                sources.removeAt(i);
+            } else {
+                i++;
+            }
+        }
+        return override >= 0 ? override : stacked;
+    }
+
+    /**
+     * Active sources of one entity, stored as parallel arrays.
+     */
+    static final class ActiveSources {
+        private int[] typeIds = new int[2];
+        private float[] rates = new float[2];
+        private float[] remaining = new float[2];
+        private int count;
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        int size() {
+            return count;
+        }
+
+        private void set(int typeId, float rate, float duration) {
+            for (int i = 0; i < count; i++) {
+                if (typeIds[i] == typeId) {
+                    rates[i] = rate;
+                    remaining[i] = duration;
+                    return;
+                }
+            }
+            if (count == typeIds.length) {
+                typeIds = Arrays.copyOf(typeIds, count * 2);
+                rates = Arrays.copyOf(rates, count * 2);
+                remaining = Arrays.copyOf(remaining, count * 2);
+            }
+            typeIds[count] = typeId;
+            rates[count] = rate;
+            remaining[count] = duration;
+            count++;
+        }
+
+        private void remove(int typeId) {
+            for (int i = 0; i < count; i++) {
+                if (typeIds[i] == typeId) {
+                    removeAt(i);
+                    return;
+                }
+            }
+        }
+
+        private void removeAt(int i) {
+            count--;
+            typeIds[i] = typeIds[count];
+            rates[i] = rates[count];
+            remaining[i] = remaining[count];
+        }
+    }
+
+    private static final class PendingApplication {
+        final UUID player;
+        final int typeId;
+        final float hpPerSecond;
+        final float durationSeconds;
+        final long queuedAt;
+
+        PendingApplication(UUID player, int typeId, float hpPerSecond, float durationSeconds, long queuedAt) {
+            this.player = player;
+            this.typeId = typeId;
+            this.hpPerSecond = hpPerSecond;
+            this.durationSeconds = durationSeconds;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
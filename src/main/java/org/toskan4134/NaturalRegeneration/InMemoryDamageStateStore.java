@@ -0,0 +1,48 @@
+package org.toskan4134.NaturalRegeneration;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Default {@link DamageStateStore}: keeps damage state in this process only.
+ * Covers players moving between worlds of the same server.
+ */
+public class InMemoryDamageStateStore implements DamageStateStore {
+
+    private static final long CLEANUP_INTERVAL_MS = 60_000L;
+
+    private final Map<UUID, DamageState> states = new ConcurrentHashMap<>();
+    private volatile long lastCleanupTime = 0L;
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void publish(@Nonnull UUID uuid, long lastDamageTime, long regenBlockedUntil) {
+        states.merge(uuid, new DamageState(lastDamageTime, regenBlockedUntil), DamageState::merge);
+        cleanupIfNeeded(System.currentTimeMillis());
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<DamageState> fetch(@Nonnull UUID uuid) {
+        return CompletableFuture.completedFuture(states.get(uuid));
+    }
+
+    @Override
+    public void close() {
+        states.clear();
+    }
+
+    private void cleanupIfNeeded(long now) {
+        if (now - lastCleanupTime < CLEANUP_INTERVAL_MS) {
+            return;
+        }
+        lastCleanupTime = now;
+        states.values().removeIf(state -> state.isExpired(now));
+    }
+}
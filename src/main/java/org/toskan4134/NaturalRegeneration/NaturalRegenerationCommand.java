@@ -3,13 +3,21 @@ package org.toskan4134.NaturalRegeneration;
 import com.hypixel.hytale.protocol.GameMode;
 import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.OptionalArg;
 import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
 import com.hypixel.hytale.server.core.command.system.basecommands.AbstractCommandCollection;
 import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
 import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
-import com.hypixel.hytale.server.core.util.Config;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Command collection to configure the NaturalRegeneration plugin.
@@ -20,31 +28,49 @@ import javax.annotation.Nonnull;
  *   /nr delay <seconds>    - Configure delay before regenerating
  *   /nr amount <hp>        - Configure HP amount per tick
  *   /nr interval <seconds> - Configure interval between regenerations
+ *   /nr set <key=value...> - Change several options with a single save
+ *   /nr inspect <player|all> [page] - Show players' regeneration state
+ *   /nr reload             - Reload configuration from disk
+ *   /nr trace <start|stop> - Record a regeneration trace for offline replay
+ *   /nr jfr <start|stop> [thresholdMs] - Record JFR events and samples of the plugin
  */
 public class NaturalRegenerationCommand extends AbstractCommandCollection {
 
-    public NaturalRegenerationCommand(Config<RegenConfig> config) {
+    public NaturalRegenerationCommand(RegenConfigManager config, TraceRecorder recorder,
+                                      RegenTelemetry telemetry, RegenerationTickSystem tickSystem, Path jfrDirectory) {
         super("naturalregeneration", "Configure the Natural Regeneration plugin");
         // this.setPermissionGroup(GameMode.Adventure);
         this.addAliases("naturalregen", "nr");
         this.requirePermission("naturalregeneration");
 
         // Add subcommands
-        this.addSubCommand(new StatusCommand(config));
+        this.addSubCommand(new StatusCommand(config, recorder, telemetry, tickSystem));
         this.addSubCommand(new ToggleCommand(config));
         this.addSubCommand(new DelayCommand(config));
         this.addSubCommand(new AmountCommand(config));
         this.addSubCommand(new IntervalCommand(config));
         this.addSubCommand(new HealthCapCommand(config));
+        this.addSubCommand(new SetCommand(config));
+        this.addSubCommand(new InspectCommand(tickSystem));
+        this.addSubCommand(new ReloadCommand(config));
+        this.addSubCommand(new TraceCommand(recorder));
+        this.addSubCommand(new JfrCommand(jfrDirectory));
     }
 
     // Status subcommand - shows current configuration
     private static class StatusCommand extends CommandBase {
-        private final Config<RegenConfig> config;
+        private final RegenConfigManager config;
+        private final TraceRecorder recorder;
+        private final RegenTelemetry telemetry;
+        private final RegenerationTickSystem tickSystem;
 
-        public StatusCommand(Config<RegenConfig> config) {
+        public StatusCommand(RegenConfigManager config, TraceRecorder recorder, RegenTelemetry telemetry,
+                             RegenerationTickSystem tickSystem) {
             super("status", "Show current configuration");
             this.config = config;
+            this.recorder = recorder;
+            this.telemetry = telemetry;
+            this.tickSystem = tickSystem;
         }
 
         @Override
@@ -57,34 +83,91 @@ public class NaturalRegenerationCommand extends AbstractCommandCollection {
             msg.append("Amount: ").append(cfg.getAmountHP()).append(" HP\n");
             msg.append("Interval: ").append(cfg.getIntervalSeconds()).append(" sec\n");
             msg.append("Health Cap: ").append(cfg.hasHealthCap() ? cfg.getHealthCap() : "None").append(" HP");
+            msg.append("\nTracked: ").append(tickSystem.getTrackedCount()).append(" players, ")
+                    .append(DamageTracker.getActiveCount()).append(" damage records (")
+                    .append(RegenMetrics.getEvictions()).append(" evicted on leave)");
+
+            RegenSettings settings = config.getSettings();
+            if (settings.getTickBudgetNanos() > 0) {
+                msg.append("\nTick Budget: ").append(cfg.getTickBudgetMicros()).append(" us (")
+                        .append(RegenMetrics.getBudgetOverruns()).append(" overruns, ")
+                        .append(RegenMetrics.getDeferredTicks()).append(" deferred)");
+            }
+            if (settings.isAdaptiveCadence()) {
+                float stretch = tickSystem.getCadenceStretch();
+                msg.append("\nAdaptive Cadence: ").append(stretch > 1.0f ? "stretched x" + stretch : "normal")
+                        .append(" (smoothed tick ").append(Math.round(tickSystem.getSmoothedTickMs() * 10f) / 10f)
+                        .append(" ms, threshold ").append(cfg.getAdaptiveTickMs()).append(" ms, max x")
+                        .append(cfg.getAdaptiveMaxStretch()).append(")");
+            }
+            if (cfg.getZones().length > 0) {
+                msg.append("\nZones: ").append(cfg.getZones().length).append(" configured (")
+                        .append(cfg.getZoneCellSize()).append(" block cells)");
+            }
+            if (settings.hasPauseConditions()) {
+                msg.append("\nPause Conditions: ").append(cfg.getPauseConditions().length).append(" (")
+                        .append(RegenMetrics.getPausedIntervals()).append(" intervals paused)");
+            }
+            if (settings.getHealCoalesceHP() > 0) {
+                msg.append("\nHeal Coalescing: ").append(cfg.getHealCoalesceHP()).append(" HP (")
+                        .append(RegenMetrics.getCoalescedHealsPerMinute()).append(" stat writes saved last minute, ")
+                        .append(RegenMetrics.getCoalescedHeals()).append(" total)");
+            }
+            if (settings.isNpcRegeneration()) {
+                msg.append("\n\nNPC Regeneration (LOD):");
+                int buckets = Math.min(settings.getLodBucketCount(), RegenMetrics.getNpcLodBucketCount());
+                for (int i = 0; i < buckets; i++) {
+                    msg.append("\n  <= ").append(settings.getLodMaxDistance(i)).append(" blocks, every ")
+                            .append(settings.getLodIntervalMs(i) / 1000f).append(" sec: ")
+                            .append(RegenMetrics.getNpcLodPopulation(i)).append(" entities, ")
+                            .append(RegenMetrics.getNpcLodUpdates(i)).append(" updates");
+                }
+            }
+
+            Path trace = recorder.getFile();
+            if (trace != null) {
+                msg.append("\n\nRecording trace: ").append(trace.getFileName())
+                        .append(" (").append(recorder.getRecordCount()).append(" records)");
+            }
+            if (telemetry.isEnabled()) {
+                Path file = telemetry.getFile();
+                msg.append("\n\nTelemetry: ").append(file != null ? file.getFileName() : "no rows yet")
+                        .append(" (").append(telemetry.getCallCount()).append(" calls, ~")
+                        .append(telemetry.getAverageCallNanos()).append(" ns each");
+                if (telemetry.getDroppedPlayers() > 0) {
+                    msg.append(", ").append(telemetry.getDroppedPlayers()).append(" players not tracked");
+                }
+                msg.append(")");
+            }
+            if (RegenJfr.isRecording()) {
+                msg.append("\n\nJFR recording (threshold ").append(RegenJfr.getThresholdMs()).append(" ms)");
+            }
             ctx.sendMessage(Message.raw(msg.toString()));
         }
     }
 
     // Toggle subcommand
     private static class ToggleCommand extends CommandBase {
-        private final Config<RegenConfig> config;
+        private final RegenConfigManager config;
 
-        public ToggleCommand(Config<RegenConfig> config) {
+        public ToggleCommand(RegenConfigManager config) {
             super("toggle", "Toggle regeneration on/off");
             this.config = config;
         }
 
         @Override
         protected void executeSync(@Nonnull CommandContext ctx) {
-            RegenConfig cfg = config.get();
-            cfg.toggle();
-            config.save();
+            RegenSettings cfg = config.update(RegenConfig::toggle);
             ctx.sendMessage(Message.raw("Regeneration: " + (cfg.isEnabled() ? "ENABLED" : "DISABLED")));
         }
     }
 
     // Delay subcommand
     private static class DelayCommand extends CommandBase {
-        private final Config<RegenConfig> config;
+        private final RegenConfigManager config;
         private final RequiredArg<Float> secondsArg;
 
-        public DelayCommand(Config<RegenConfig> config) {
+        public DelayCommand(RegenConfigManager config) {
             super("delay", "Set delay before regeneration starts");
             this.config = config;
             this.secondsArg = this.withRequiredArg("seconds", "Delay in seconds", ArgTypes.FLOAT);
@@ -94,8 +177,7 @@ public class NaturalRegenerationCommand extends AbstractCommandCollection {
         protected void executeSync(@Nonnull CommandContext ctx) {
             Float seconds = ctx.get(secondsArg);
             if (seconds != null) {
-                config.get().setDelaySeconds(seconds);
-                config.save();
+                config.update(cfg -> cfg.setDelaySeconds(seconds));
                 ctx.sendMessage(Message.raw("Delay set to " + seconds + " seconds"));
             }
         }
@@ -103,10 +185,10 @@ public class NaturalRegenerationCommand extends AbstractCommandCollection {
 
     // Amount subcommand
     private static class AmountCommand extends CommandBase {
-        private final Config<RegenConfig> config;
+        private final RegenConfigManager config;
         private final RequiredArg<Float> hpArg;
 
-        public AmountCommand(Config<RegenConfig> config) {
+        public AmountCommand(RegenConfigManager config) {
             super("amount", "Set HP regenerated per tick");
             this.config = config;
             this.hpArg = this.withRequiredArg("hp", "HP amount", ArgTypes.FLOAT);
@@ -116,8 +198,7 @@ public class NaturalRegenerationCommand extends AbstractCommandCollection {
         protected void executeSync(@Nonnull CommandContext ctx) {
             Float hp = ctx.get(hpArg);
             if (hp != null) {
-                config.get().setAmountHP(hp);
-                config.save();
+                config.update(cfg -> cfg.setAmountHP(hp));
                 ctx.sendMessage(Message.raw("Amount set to " + hp + " HP per tick"));
             }
         }
@@ -125,10 +206,10 @@ public class NaturalRegenerationCommand extends AbstractCommandCollection {
 
     // Interval subcommand
     private static class IntervalCommand extends CommandBase {
-        private final Config<RegenConfig> config;
+        private final RegenConfigManager config;
         private final RequiredArg<Float> secondsArg;
 
-        public IntervalCommand(Config<RegenConfig> config) {
+        public IntervalCommand(RegenConfigManager config) {
             super("interval", "Set interval between regeneration ticks");
             this.config = config;
             this.secondsArg = this.withRequiredArg("seconds", "Interval in seconds", ArgTypes.FLOAT);
@@ -138,8 +219,7 @@ public class NaturalRegenerationCommand extends AbstractCommandCollection {
         protected void executeSync(@Nonnull CommandContext ctx) {
             Float seconds = ctx.get(secondsArg);
             if (seconds != null) {
-                config.get().setIntervalSeconds(seconds);
-                config.save();
+                config.update(cfg -> cfg.setIntervalSeconds(seconds));
                 ctx.sendMessage(Message.raw("Interval set to " + seconds + " seconds"));
             }
         }
@@ -147,10 +227,10 @@ public class NaturalRegenerationCommand extends AbstractCommandCollection {
 
     // Health Cap subcommand
     private static class HealthCapCommand extends CommandBase {
-        private final Config<RegenConfig> config;
+        private final RegenConfigManager config;
         private final RequiredArg<String> capArg;
 
-        public HealthCapCommand(Config<RegenConfig> config) {
+        public HealthCapCommand(RegenConfigManager config) {
             super("healthcap", "Set health cap (e.g., '80' for absolute or '80%' for percentage, 'none' to disable)");
             this.config = config;
             this.capArg = this.withRequiredArg("cap", "Health cap value (number, percentage, or 'none')", ArgTypes.STRING);
@@ -161,8 +241,7 @@ public class NaturalRegenerationCommand extends AbstractCommandCollection {
             String cap = ctx.get(capArg);
             if (cap != null) {
                 if (cap.equalsIgnoreCase("none") || cap.equalsIgnoreCase("off") || cap.equals("0")) {
-                    config.get().setHealthCap("");
-                    config.save();
+                    config.update(cfg -> cfg.setHealthCap(""));
                     ctx.sendMessage(Message.raw("Health cap disabled"));
                 } else {
                     // Validate the format
@@ -173,8 +252,7 @@ public class NaturalRegenerationCommand extends AbstractCommandCollection {
                             ctx.sendMessage(Message.raw("Health cap must be a positive value"));
                             return;
                         }
-                        config.get().setHealthCap(cap);
-                        config.save();
+                        config.update(cfg -> cfg.setHealthCap(cap));
                         ctx.sendMessage(Message.raw("Health cap set to " + cap +
                                 (cap.endsWith("%") ? " (percentage of max health)" : " HP")));
                     } catch (NumberFormatException e) {
@@ -184,4 +262,299 @@ public class NaturalRegenerationCommand extends AbstractCommandCollection {
             }
         }
     }
+
+    // Set subcommand - applies several options as one change with a single save
+    private static class SetCommand extends CommandBase {
+        private final RegenConfigManager config;
+
+        public SetCommand(RegenConfigManager config) {
+            super("set", "Set several options at once (e.g. DelaySeconds=5 AmountHP=2)");
+            this.config = config;
+            this.setAllowsExtraArguments(true);
+        }
+
+        @Override
+        protected void executeSync(@Nonnull CommandContext ctx) {
+            List<Consumer<RegenConfig>> changes = new ArrayList<>();
+            List<String> applied = new ArrayList<>();
+            for (String token : ctx.getInputString().trim().split("\\s+")) {
+                int separator = token.indexOf('=');
+                if (separator <= 0) {
+                    continue; // Command and subcommand names
+                }
+                String key = token.substring(0, separator);
+                String value = token.substring(separator + 1);
+                try {
+                    changes.add(parseChange(key, value));
+                    applied.add(key + "=" + value);
+                } catch (IllegalArgumentException e) {
+                    ctx.sendMessage(Message.raw(e.getMessage()));
+                    return;
+                }
+            }
+            if (changes.isEmpty()) {
+                ctx.sendMessage(Message.raw("Usage: /nr set <key=value> [key=value...]\nKeys: Enabled, DelaySeconds, "
+                        + "AmountHP, IntervalSeconds, HealthCap, CheckForUpdates, NpcRegeneration, "
+                        + "NpcRegenerationMode, NpcLazySweepSeconds, TickBudgetMicros, AdaptiveCadence, AdaptiveTickMs, "
+                        + "AdaptiveMaxStretch, HealCoalesceHP, Telemetry, TelemetryFormat, "
+                        + "TelemetryWindowSeconds"));
+                return;
+            }
+
+            List<String> errors = config.updateAll(cfg -> changes.forEach(change -> change.accept(cfg)));
+            if (!errors.isEmpty()) {
+                ctx.sendMessage(Message.raw("Nothing changed:\n- " + String.join("\n- ", errors)));
+            } else {
+                ctx.sendMessage(Message.raw("Set " + String.join(", ", applied)));
+            }
+        }
+
+        private static Consumer<RegenConfig> parseChange(String key, String value) {
+            switch (key.toLowerCase(Locale.ROOT)) {
+                case "enabled": {
+                    boolean enabled = parseBoolean(key, value);
+                    return cfg -> cfg.setEnabled(enabled);
+                }
+                case "delayseconds": {
+                    float seconds = parseFloat(key, value);
+                    return cfg -> cfg.setDelaySeconds(seconds);
+                }
+                case "amounthp": {
+                    float hp = parseFloat(key, value);
+                    return cfg -> cfg.setAmountHP(hp);
+                }
+                case "intervalseconds": {
+                    float seconds = parseFloat(key, value);
+                    return cfg -> cfg.setIntervalSeconds(seconds);
+                }
+                case "healthcap": {
+                    String cap = value.equalsIgnoreCase("none") || value.equalsIgnoreCase("off") ? "" : value;
+                    return cfg -> cfg.setHealthCap(cap);
+                }
+                case "checkforupdates": {
+                    boolean check = parseBoolean(key, value);
+                    return cfg -> cfg.setCheckForUpdates(check);
+                }
+                case "npcregeneration": {
+                    boolean npc = parseBoolean(key, value);
+                    return cfg -> cfg.setNpcRegeneration(npc);
+                }
+                case "npcregenerationmode":
+                    return cfg -> cfg.setNpcRegenerationMode(value);
+                case "npclazysweepseconds": {
+                    float seconds = parseFloat(key, value);
+                    return cfg -> cfg.setNpcLazySweepSeconds(seconds);
+                }
+                case "tickbudgetmicros": {
+                    int micros = (int) parseFloat(key, value);
+                    return cfg -> cfg.setTickBudgetMicros(micros);
+                }
+                case "adaptivecadence": {
+                    boolean adaptive = parseBoolean(key, value);
+                    return cfg -> cfg.setAdaptiveCadence(adaptive);
+                }
+                case "adaptivetickms": {
+                    float ms = parseFloat(key, value);
+                    return cfg -> cfg.setAdaptiveTickMs(ms);
+                }
+                case "adaptivemaxstretch": {
+                    float stretch = parseFloat(key, value);
+                    return cfg -> cfg.setAdaptiveMaxStretch(stretch);
+                }
+                case "healcoalescehp": {
+                    float hp = parseFloat(key, value);
+                    return cfg -> cfg.setHealCoalesceHP(hp);
+                }
+                case "telemetry": {
+                    boolean telemetry = parseBoolean(key, value);
+                    return cfg -> cfg.setTelemetry(telemetry);
+                }
+                case "telemetryformat":
+                    return cfg -> cfg.setTelemetryFormat(value);
+                case "telemetrywindowseconds": {
+                    float seconds = parseFloat(key, value);
+                    return cfg -> cfg.setTelemetryWindowSeconds(seconds);
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + key);
+            }
+        }
+
+        private static float parseFloat(String key, String value) {
+            try {
+                return Float.parseFloat(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(key + " must be a number (was \"" + value + "\")");
+            }
+        }
+
+        private static boolean parseBoolean(String key, String value) {
+            if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("on")) {
+                return true;
+            }
+            if (value.equalsIgnoreCase("false") || value.equalsIgnoreCase("off")) {
+                return false;
+            }
+            throw new IllegalArgumentException(key + " must be true or false (was \"" + value + "\")");
+        }
+    }
+
+    // Inspect subcommand - reports players' regeneration state, built off the world thread
+    private static class InspectCommand extends CommandBase {
+        private static final int PAGE_SIZE = 10;
+
+        private final RegenerationTickSystem tickSystem;
+        private final RequiredArg<String> targetArg;
+        private final OptionalArg<Integer> pageArg;
+
+        public InspectCommand(RegenerationTickSystem tickSystem) {
+            super("inspect", "Show the regeneration state of a player or all players");
+            this.tickSystem = tickSystem;
+            this.targetArg = this.withRequiredArg("target", "Player name, UUID or 'all'", ArgTypes.STRING);
+            this.pageArg = this.withOptionalArg("page", "Page number", ArgTypes.INTEGER);
+        }
+
+        @Override
+        protected void executeSync(@Nonnull CommandContext ctx) {
+            String target = ctx.get(targetArg);
+            int page = ctx.provided(pageArg) ? Math.max(1, ctx.get(pageArg)) : 1;
+
+            // The world thread only copies the states; filtering and formatting happen here
+            tickSystem.requestViews()
+                    .orTimeout(5, TimeUnit.SECONDS)
+                    .thenApplyAsync(views -> format(views, target, page))
+                    .whenComplete((text, ex) -> ctx.sendMessage(Message.raw(ex != null
+                            ? "Failed to inspect regeneration state: " + ex.getMessage() : text)));
+        }
+
+        private static String format(List<RegenStateView> views, String target, int page) {
+            boolean all = target.equalsIgnoreCase("all");
+            List<RegenStateView> matches = new ArrayList<>();
+            for (RegenStateView view : views) {
+                if (all || target.equalsIgnoreCase(view.getUsername())
+                        || (view.getUuid() != null && target.equalsIgnoreCase(view.getUuid().toString()))) {
+                    matches.add(view);
+                }
+            }
+            if (matches.isEmpty()) {
+                return all ? "No players tracked" : "No regeneration state for " + target;
+            }
+            matches.sort(Comparator.comparing(view -> view.getUsername() != null ? view.getUsername() : "",
+                    String.CASE_INSENSITIVE_ORDER));
+
+            int pages = (matches.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+            int current = Math.min(page, pages);
+            long now = System.currentTimeMillis();
+            StringBuilder msg = new StringBuilder();
+            msg.append("=== Regeneration state (page ").append(current).append("/").append(pages)
+                    .append(", ").append(matches.size()).append(" players) ===");
+            int end = Math.min(current * PAGE_SIZE, matches.size());
+            for (int i = (current - 1) * PAGE_SIZE; i < end; i++) {
+                RegenStateView view = matches.get(i);
+                msg.append("\n").append(view.getUsername() != null ? view.getUsername() : view.getUuid()).append(": ");
+                if (view.canRegenerate(now)) {
+                    msg.append("regenerating");
+                } else {
+                    msg.append("blocked for ").append((view.getRegenBlockedUntil() - now) / 1000f).append(" sec");
+                }
+                if (view.getLastDamageTime() > 0) {
+                    msg.append(", last hit ").append((now - view.getLastDamageTime()) / 1000f).append(" sec ago");
+                }
+                if (view.getHealSources() > 0) {
+                    msg.append(", ").append(view.getHealSources()).append(" heal sources");
+                }
+            }
+            return msg.toString();
+        }
+    }
+
+    // Reload subcommand - re-reads the config file from disk
+    private static class ReloadCommand extends CommandBase {
+        private final RegenConfigManager config;
+
+        public ReloadCommand(RegenConfigManager config) {
+            super("reload", "Reload configuration from disk");
+            this.config = config;
+        }
+
+        @Override
+        protected void executeSync(@Nonnull CommandContext ctx) {
+            config.reload().whenComplete((errors, ex) -> {
+                if (ex != null) {
+                    ctx.sendMessage(Message.raw("Failed to reload configuration: " + ex.getMessage()));
+                } else if (!errors.isEmpty()) {
+                    ctx.sendMessage(Message.raw("Configuration not reloaded:\n- " + String.join("\n- ", errors)));
+                } else {
+                    ctx.sendMessage(Message.raw("Configuration reloaded"));
+                }
+            });
+        }
+    }
+
+    // Trace subcommand - records regeneration inputs and outcomes for TraceReplay
+    private static class TraceCommand extends CommandBase {
+        private final TraceRecorder recorder;
+        private final RequiredArg<String> actionArg;
+
+        public TraceCommand(TraceRecorder recorder) {
+            super("trace", "Record a regeneration trace for offline replay");
+            this.recorder = recorder;
+            this.actionArg = this.withRequiredArg("action", "'start' or 'stop'", ArgTypes.STRING);
+        }
+
+        @Override
+        protected void executeSync(@Nonnull CommandContext ctx) {
+            String action = ctx.get(actionArg);
+            if ("start".equalsIgnoreCase(action)) {
+                try {
+                    Path file = recorder.start();
+                    ctx.sendMessage(Message.raw("Recording trace to " + file));
+                } catch (IOException e) {
+                    ctx.sendMessage(Message.raw("Failed to start trace: " + e.getMessage()));
+                }
+            } else if ("stop".equalsIgnoreCase(action)) {
+                long records = recorder.stop();
+                ctx.sendMessage(Message.raw(records < 0 ? "No trace is being recorded"
+                        : "Trace stopped (" + records + " records)"));
+            } else {
+                ctx.sendMessage(Message.raw("Usage: /nr trace <start|stop>"));
+            }
+        }
+    }
+
+    // JFR subcommand - records the plugin's Flight Recorder events
+    private static class JfrCommand extends CommandBase {
+        private final Path directory;
+        private final RequiredArg<String> actionArg;
+        private final OptionalArg<Integer> thresholdArg;
+
+        public JfrCommand(Path directory) {
+            super("jfr", "Record JFR events and execution samples of the plugin");
+            this.directory = directory;
+            this.actionArg = this.withRequiredArg("action", "'start' or 'stop'", ArgTypes.STRING);
+            this.thresholdArg = this.withOptionalArg("thresholdMs",
+                    "Minimum duration of recorded passes (default " + RegenJfr.DEFAULT_THRESHOLD_MS + ")", ArgTypes.INTEGER);
+        }
+
+        @Override
+        protected void executeSync(@Nonnull CommandContext ctx) {
+            String action = ctx.get(actionArg);
+            if ("start".equalsIgnoreCase(action)) {
+                long threshold = ctx.provided(thresholdArg) ? ctx.get(thresholdArg) : RegenJfr.DEFAULT_THRESHOLD_MS;
+                ctx.sendMessage(Message.raw(RegenJfr.start(threshold)
+                        ? "JFR recording started (threshold " + RegenJfr.getThresholdMs() + " ms)"
+                        : "A JFR recording is already running"));
+            } else if ("stop".equalsIgnoreCase(action)) {
+                try {
+                    Path file = RegenJfr.stop(directory);
+                    ctx.sendMessage(Message.raw(file == null ? "No JFR recording is running"
+                            : "JFR recording written to " + file));
+                } catch (IOException e) {
+                    ctx.sendMessage(Message.raw("Failed to write JFR recording: " + e.getMessage()));
+                }
+            } else {
+                ctx.sendMessage(Message.raw("Usage: /nr jfr <start|stop> [thresholdMs]"));
+            }
+        }
+    }
 }
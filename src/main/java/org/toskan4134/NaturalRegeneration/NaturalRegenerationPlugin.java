@@ -6,9 +6,12 @@ import com.hypixel.hytale.server.core.util.Config;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -21,13 +24,44 @@ import java.util.concurrent.TimeUnit;
  *   /nr delay <sec> - Configure delay
  *   /nr amount <hp> - Configure amount
  *   /nr interval <sec> - Configure interval
+ *   /nr set <key=value...> - Change several options at once
+ *   /nr inspect <player|all> [page] - Show players' regeneration state
+ *   /nr reload - Reload configuration from disk
+ *   /nr trace <start|stop> - Record a regeneration trace
  */
 public class NaturalRegenerationPlugin extends JavaPlugin {
 
     private static final long UPDATE_CHECK_INTERVAL_HOURS = 12;
+    // The first check waits for the server to settle, plus jitter so restarts don't hit the APIs together
+    private static final long UPDATE_CHECK_DELAY_SECONDS = 60;
+    private static final long UPDATE_CHECK_JITTER_SECONDS = 120;
+    private static final String STATE_FILE_NAME = "RegenState.bin";
+    private static final String TRACES_DIRECTORY = "traces";
+    private static final String TELEMETRY_DIRECTORY = "telemetry";
+    private static final String JFR_DIRECTORY = "jfr";
+
+    @Nullable
+    private static NaturalRegenerationPlugin instance;
 
     private final Config<RegenConfig> config;
     @Nullable
+    private RegenConfigManager configManager;
+    @Nullable
+    private ConfigWatcher configWatcher;
+    @Nullable
+    private RegenStateSnapshot stateSnapshot;
+    @Nullable
+    private DamageStateStore damageStore;
+    private final HealPipeline healPipeline = new HealPipeline();
+    @Nullable
+    private RegenerationServiceImpl service;
+    @Nullable
+    private TraceRecorder traceRecorder;
+    @Nullable
+    private RegenTelemetry telemetry;
+    @Nullable
+    private PlayerStateListener playerStateListener;
+    @Nullable
     private VersionChecker versionChecker;
     @Nullable
     private PlayerJoinListener playerJoinListener;
@@ -38,33 +72,138 @@ public class NaturalRegenerationPlugin extends JavaPlugin {
 
     public NaturalRegenerationPlugin(@Nonnull JavaPluginInit init) {
         super(init);
+        instance = this;
         this.config = this.withConfig("NaturalRegeneration", RegenConfig.CODEC);
         getLogger().atInfo().log("Starting " + this.getName() + " v" + this.getManifest().getVersion().toString());
     }
 
     @Override
     protected void setup() {
+        long setupStart = System.nanoTime();
         getLogger().atInfo().log("Setting up plugin " + this.getName());
 
-        // Save config to create file with defaults if it doesn't exist
-        config.save();
+        configManager = new RegenConfigManager(config, this.getDataDirectory());
+        saveConfigIfOutdated();
+
+        // Damage state survives restarts; the file is only read once players join
+        stateSnapshot = new RegenStateSnapshot(this.getDataDirectory().resolve(STATE_FILE_NAME));
+        stateSnapshot.start();
+
+        // Damage state shared with other servers (in-process only by default)
+        damageStore = createDamageStateStore(config.get());
+        damageStore.start();
+
+        // Regeneration traces for offline replay, only recorded on demand (/nr trace start)
+        traceRecorder = new TraceRecorder(this.getDataDirectory().resolve(TRACES_DIRECTORY));
+
+        // Per-player telemetry for balancing, only recorded while Telemetry is enabled
+        telemetry = new RegenTelemetry(this.getDataDirectory().resolve(TELEMETRY_DIRECTORY));
+
+        // Damage events are batched per world and drained once per tick by the regeneration system
+        DamageEvents damageEvents = new DamageEvents(traceRecorder, telemetry, damageStore);
+
+        // NPC regeneration (idle unless NpcRegeneration is enabled)
+        PlayerPositions playerPositions = new PlayerPositions();
+        NpcRegenerationSystem npcSystem = new NpcRegenerationSystem(configManager, playerPositions);
+        service = new RegenerationServiceImpl(configManager, healPipeline, npcSystem, new RegenZones());
 
         // Register damage listener system
-        this.getEntityStoreRegistry().registerSystem(new DamageListenerSystem());
+        this.getEntityStoreRegistry().registerSystem(new DamageListenerSystem(configManager, damageEvents, npcSystem));
 
         // Register regeneration system with config
-        this.getEntityStoreRegistry().registerSystem(new RegenerationTickSystem(config));
+        RegenerationTickSystem tickSystem = new RegenerationTickSystem(configManager, stateSnapshot, damageStore,
+                damageEvents, service, playerPositions, traceRecorder, telemetry);
+        this.getEntityStoreRegistry().registerSystem(tickSystem);
+
+        // Loads player state on join and evicts it on leave
+        playerStateListener = new PlayerStateListener(stateSnapshot, damageStore, tickSystem);
+        playerStateListener.register(this);
+
+        // Register NPC regeneration system
+        this.getEntityStoreRegistry().registerSystem(npcSystem);
 
         // Register command with config
-        this.getCommandRegistry().registerCommand(new NaturalRegenerationCommand(config));
+        this.getCommandRegistry().registerCommand(new NaturalRegenerationCommand(configManager, traceRecorder, telemetry,
+                tickSystem, this.getDataDirectory().resolve(JFR_DIRECTORY)));
 
-        // Check for updates if enabled (initial check + every 12 hours)
-        if (config.get().isCheckForUpdates()) {
-            startUpdateChecker();
+        getLogger().atInfo().log(this.getName() + " setup complete in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - setupStart) + " ms");
+        getLogger().atInfo().log("Use /naturalregeneration to view and modify configuration");
+    }
+
+    /**
+     * Creates the damage state store selected in the configuration.
+     */
+    @Nonnull
+    private DamageStateStore createDamageStateStore(@Nonnull RegenConfig cfg) {
+        if (cfg.isSocketDamageStateStore()) {
+            if (cfg.getDamageStateStorePort() > 0 && !cfg.getDamageStateStoreHost().isBlank()) {
+                return new SocketDamageStateStore(cfg.getDamageStateStoreHost(), cfg.getDamageStateStorePort());
+            }
+            getLogger().atWarning().log("DamageStateStoreAddress must be host:port (was \"" + cfg.getDamageStateStoreAddress()
+                    + "\"); damage state is only shared within this server");
         }
+        return new InMemoryDamageStateStore();
+    }
 
-        getLogger().atInfo().log(this.getName() + " setup complete!");
-        getLogger().atInfo().log("Use /naturalregeneration to view and modify configuration");
+    /**
+     * Gets the running plugin instance, for other plugins using the API.
+     */
+    @Nullable
+    public static NaturalRegenerationPlugin getInstance() {
+        return instance;
+    }
+
+    /**
+     * Gets the public regeneration API, or null before the plugin is set up.
+     */
+    @Nullable
+    public RegenerationService getService() {
+        return service;
+    }
+
+    /**
+     * Gets the heal pipeline, used by other plugins to register timed regeneration sources.
+     */
+    @Nonnull
+    public HealPipeline getHealPipeline() {
+        return healPipeline;
+    }
+
+    @Override
+    protected void start() {
+        // Reload the config when it is edited on disk
+        if (configManager != null) {
+            configWatcher = new ConfigWatcher(configManager);
+            configWatcher.start();
+        }
+
+        // Check for updates if enabled (first check shortly after startup, then every 12 hours)
+        RegenConfig cfg = config.get();
+        if (cfg.isCheckForUpdates()) {
+            if (cfg.isOfflineMode()) {
+                getLogger().atInfo().log("Offline mode: update checks are disabled");
+            } else {
+                startUpdateChecker();
+            }
+        }
+    }
+
+    /**
+     * Writes the config file only if it is missing or was written by an older
+     * version (so new options appear with their defaults). The write is asynchronous.
+     */
+    private void saveConfigIfOutdated() {
+        RegenConfig cfg = config.get();
+        boolean missing = !Files.exists(configManager.getConfigPath());
+        if (!missing && cfg.getConfigVersion() >= RegenConfig.CONFIG_VERSION) {
+            return;
+        }
+        cfg.setConfigVersion(RegenConfig.CONFIG_VERSION);
+        configManager.save().exceptionally(ex -> {
+            getLogger().atWarning().log("Failed to save configuration: " + ex.getMessage());
+            return null;
+        });
     }
 
     /**
@@ -78,15 +217,17 @@ public class NaturalRegenerationPlugin extends JavaPlugin {
             return t;
         });
 
-        // Run initial check immediately, then every 12 hours
+        // Run the first check once the server has settled, then every 12 hours
+        long initialDelay = UPDATE_CHECK_DELAY_SECONDS + ThreadLocalRandom.current().nextLong(UPDATE_CHECK_JITTER_SECONDS + 1);
         updateCheckTask = updateCheckScheduler.scheduleAtFixedRate(
                 this::checkForUpdates,
-                0, // Initial delay
-                UPDATE_CHECK_INTERVAL_HOURS,
-                TimeUnit.HOURS
+                initialDelay,
+                TimeUnit.HOURS.toSeconds(UPDATE_CHECK_INTERVAL_HOURS),
+                TimeUnit.SECONDS
         );
 
-        getLogger().atInfo().log("Update checker started (checks every " + UPDATE_CHECK_INTERVAL_HOURS + " hours)");
+        getLogger().atInfo().log("Update checker started (first check in " + initialDelay + " sec, then every "
+                + UPDATE_CHECK_INTERVAL_HOURS + " hours)");
     }
 
     /**
@@ -99,31 +240,39 @@ public class NaturalRegenerationPlugin extends JavaPlugin {
 
         versionChecker = new VersionChecker(currentVersion);
 
-        // Check for updates asynchronously
-        versionChecker.checkForUpdatesAsync().thenAccept(checker -> {
-            if (checker.isUpdateAvailable()) {
-                // Log to console
-                String consoleMessage = checker.getConsoleMessage();
-                if (consoleMessage != null) {
-                    getLogger().atWarning().log(consoleMessage);
-                }
-
-                // Register player join listener for operator notifications (only once)
-                if (playerJoinListener == null) {
-                    playerJoinListener = new PlayerJoinListener(checker);
-                    playerJoinListener.register(this);
-                }
-            }
-        }).exceptionally(ex -> {
+        // Runs on the update checker thread, so slow or unreachable hosts never hold shared pool threads
+        try {
+            versionChecker.checkForUpdates();
+        } catch (RuntimeException ex) {
             getLogger().atWarning().log("Failed to check for updates: " + ex.getMessage());
-            return null;
-        });
+            return;
+        }
+
+        if (versionChecker.isUpdateAvailable()) {
+            // Log to console
+            String consoleMessage = versionChecker.getConsoleMessage();
+            if (consoleMessage != null) {
+                getLogger().atWarning().log(consoleMessage);
+            }
+
+            // Register player join listener for operator notifications (only once)
+            if (playerJoinListener == null) {
+                playerJoinListener = new PlayerJoinListener(versionChecker);
+                playerJoinListener.register(this);
+            }
+        }
     }
 
     @Override
     protected void shutdown() {
         getLogger().atInfo().log("Shutting down " + this.getName());
 
+        // Stop config watcher
+        if (configWatcher != null) {
+            configWatcher.stop();
+            configWatcher = null;
+        }
+
         // Stop update checker
         if (updateCheckTask != null) {
             updateCheckTask.cancel(false);
@@ -134,6 +283,35 @@ public class NaturalRegenerationPlugin extends JavaPlugin {
             updateCheckScheduler = null;
         }
 
+        // Finish any trace being recorded
+        if (traceRecorder != null) {
+            traceRecorder.stop();
+            traceRecorder = null;
+        }
+        if (telemetry != null) {
+            telemetry.close();
+            telemetry = null;
+        }
+        try {
+            RegenJfr.stop(this.getDataDirectory().resolve(JFR_DIRECTORY));
+        } catch (IOException e) {
+            getLogger().atWarning().log("Failed to write JFR recording: " + e.getMessage());
+        }
+
+        // Save damage state before clearing it
+        if (playerStateListener != null) {
+            playerStateListener.unregister();
+            playerStateListener = null;
+        }
+        if (stateSnapshot != null) {
+            stateSnapshot.close();
+            stateSnapshot = null;
+        }
+        if (damageStore != null) {
+            damageStore.close();
+            damageStore = null;
+        }
+
         // Clear data
         DamageTracker.clearAll();
 
@@ -0,0 +1,410 @@
+package org.toskan4134.NaturalRegeneration;
+
+import com.hypixel.hytale.component.ArchetypeChunk;
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.ComponentType;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.query.Query;
+import com.hypixel.hytale.component.system.tick.EntityTickingSystem;
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.server.core.entity.UUIDComponent;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
+import com.hypixel.hytale.server.core.modules.entitystats.EntityStatMap;
+import com.hypixel.hytale.server.core.modules.entitystats.EntityStatValue;
+import com.hypixel.hytale.server.core.modules.entitystats.EntityStatsModule;
+import com.hypixel.hytale.server.core.modules.entitystats.asset.DefaultEntityStatTypes;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * System that regenerates health for NPCs and creatures (any non-player entity with stats).
+ * Uses level-of-detail throttling: entities near players are updated often, distant
+ * ones rarely, and each update heals the whole time elapsed since the last one.
+ *
+ * In lazy mode the distance checks are skipped: regeneration is computed in closed form
+ * and only applied when the entity is damaged, on a rare sweep, or projected through the API.
+ */
+public class NpcRegenerationSystem extends EntityTickingSystem<EntityStore> {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    // Each entity is only looked at every EXAMINE_STRIDE ticks (staggered by index)
+    private static final int EXAMINE_STRIDE = 10;
+
+    // Forget entities not seen for 5 minutes (despawned or unloaded)
+    private static final long STATE_MAX_AGE_MS = 300_000L;
+    // Entities still owed health are kept for an hour, so they catch up when their chunk reloads
+    private static final long UNSETTLED_STATE_MAX_AGE_MS = 3_600_000L;
+    private static final long SWEEP_INTERVAL_MS = 60_000L;
+
+    private final RegenConfigManager configManager;
+    private final PlayerPositions playerPositions;
+
+    // Component types, resolved once instead of on every entity
+    private final ComponentType<EntityStore, EntityStatMap> statMapType;
+    private final ComponentType<EntityStore, TransformComponent> transformType;
+    private final ComponentType<EntityStore, UUIDComponent> uuidType;
+
+    // Cache for health index to avoid looking it up every tick
+    private int cachedHealthIndex = Integer.MIN_VALUE;
+
+    // Keyed by keyOf: an entity keeps its UUID when its chunk is unloaded and reloaded, its Ref does not
+    private final Map<Object, NpcState> states = new ConcurrentHashMap<>();
+    // Stagger and sweep of each world, only touched by the world's own thread
+    private final Map<Store<EntityStore>, WorldNpcs> worlds = new ConcurrentHashMap<>();
+
+    public NpcRegenerationSystem(RegenConfigManager configManager, PlayerPositions playerPositions) {
+        this.configManager = configManager;
+        this.playerPositions = playerPositions;
+        this.statMapType = EntityStatsModule.get().getEntityStatMapComponentType();
+        this.transformType = TransformComponent.getComponentType();
+        this.uuidType = UUIDComponent.getComponentType();
+    }
+
+    /**
+     * Gets the key an NPC is tracked by, here and in the {@link DamageTracker}: its UUID,
+     * wrapped so it is never taken for a player's, or its Ref if it has none.
+     *
+     * @param entityIndex the entity's index in its chunk
+     * @param chunk the chunk the entity lives in
+     */
+    @Nonnull
+    public Object keyOf(int entityIndex, @Nonnull ArchetypeChunk<EntityStore> chunk) {
+        UUIDComponent uuid = chunk.getComponent(entityIndex, uuidType);
+        return uuid != null ? new NpcKey(uuid.getUuid()) : chunk.getReferenceTo(entityIndex);
+    }
+
+    @Nonnull
+    private Object keyOf(@Nonnull Store<EntityStore> store, @Nonnull Ref<EntityStore> ref) {
+        UUIDComponent uuid = store.getComponent(ref, uuidType);
+        return uuid != null ? new NpcKey(uuid.getUuid()) : ref;
+    }
+
+    @Nonnull
+    @Override
+    public Query<EntityStore> getQuery() {
+        // Every non-player entity that has stats and a position
+        return Query.and(EntityStatMap.getComponentType(), TransformComponent.getComponentType(),
+                Query.not(Player.getComponentType()));
+    }
+
+    @Override
+    public boolean isParallel(int archetypeChunkSize, int taskCount) {
+        // Don't run in parallel to avoid race conditions
+        return false;
+    }
+
+    @Override
+    public void tick(float dt, int systemIndex, @Nonnull Store<EntityStore> store) {
+        if (!configManager.getSettings().isNpcRegeneration()) {
+            if (!states.isEmpty()) {
+                states.clear();
+                worlds.clear();
+            }
+            return;
+        }
+        WorldNpcs world = worlds.get(store);
+        if (world == null) {
+            world = worlds.computeIfAbsent(store, k -> new WorldNpcs());
+        }
+        world.tickCount++;
+        world.lastTickTime = System.currentTimeMillis();
+        sweepIfNeeded(store, world);
+        super.tick(dt, systemIndex, store);
+    }
+
+    @Override
+    public void tick(float dt,
+                     int entityIndex,
+                     @Nonnull ArchetypeChunk<EntityStore> chunk,
+                     @Nonnull Store<EntityStore> store,
+                     @Nonnull CommandBuffer<EntityStore> commandBuffer) {
+
+        // Cheap stagger before any lookup: most entities return here
+        WorldNpcs world = worlds.get(store);
+        if (world == null || (world.tickCount + entityIndex) % EXAMINE_STRIDE != 0) {
+            return;
+        }
+
+        RegenSettings cfg = configManager.getSettings();
+        if (!cfg.isEnabled()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        Ref<EntityStore> ref = chunk.getReferenceTo(entityIndex);
+        Object key = keyOf(entityIndex, chunk);
+        NpcState state = states.get(key);
+        if (state == null) {
+            state = new NpcState();
+            state.lastSettledTime = now;
+            state.ref = ref;
+            state.owner = store;
+            states.put(key, state);
+        } else if (!ref.equals(state.ref)) {
+            // Reloaded under a new Ref: catch up on the time it was unloaded right away
+            state.ref = ref;
+            state.owner = store;
+            state.nextUpdateTime = 0L;
+        }
+        state.lastSeenTime = now;
+        if (now < state.nextUpdateTime) {
+            return;
+        }
+
+        if (cfg.isNpcLazy()) {
+            // Lazy mode: no distance checks, just a rare sweep; damage and API reads settle in between
+            state.nextUpdateTime = now + cfg.getNpcLazySweepMs();
+        } else {
+            // Pick the LOD bucket from the distance to the nearest player
+            TransformComponent transform = chunk.getComponent(entityIndex, transformType);
+            if (transform == null) {
+                return;
+            }
+            Vector3d position = transform.getPosition();
+            double distanceSq = playerPositions.get(store).nearestDistanceSq(position.getX(), position.getZ());
+            int bucket = cfg.getLodBucket(distanceSq);
+            state.bucket = bucket;
+            state.nextUpdateTime = now + cfg.getLodIntervalMs(bucket);
+            RegenMetrics.recordNpcLodUpdate(bucket);
+        }
+
+        settle(cfg, state, key, entityIndex, chunk, now);
+    }
+
+    /**
+     * Settles an NPC's pending regeneration right before it takes damage, so the
+     * damage lands on the health it should have.
+     *
+     * @param key the entity's key, from {@link #keyOf}
+     * @param entityIndex the entity's index in its chunk
+     * @param chunk the chunk the entity lives in
+     */
+    public void settleOnDamage(@Nonnull Object key, int entityIndex, @Nonnull ArchetypeChunk<EntityStore> chunk) {
+        RegenSettings cfg = configManager.getSettings();
+        if (!cfg.isEnabled() || !cfg.isNpcRegeneration()) {
+            return;
+        }
+        NpcState state = states.get(key);
+        if (state != null) {
+            settle(cfg, state, key, entityIndex, chunk, System.currentTimeMillis());
+            state.full = false;
+        }
+    }
+
+    /**
+     * Gets the health an NPC has regenerated since it was last settled, clamped to its
+     * health cap. Reading it also settles it on the entity's world thread.
+     *
+     * @param ref the entity
+     * @return the pending heal, or 0 if the entity is not tracked
+     */
+    public float getPendingHeal(@Nonnull Ref<EntityStore> ref) {
+        RegenSettings cfg = configManager.getSettings();
+        if (!cfg.isEnabled() || !ref.isValid()) {
+            return 0f;
+        }
+        Store<EntityStore> store = ref.getStore();
+        Object key = keyOf(store, ref);
+        NpcState state = states.get(key);
+        if (state == null) {
+            return 0f;
+        }
+        float pending = pendingHeal(cfg, state, key, System.currentTimeMillis());
+        EntityStatValue healthValue = healthOf(store.getComponent(ref, statMapType));
+        if (pending <= 0 || healthValue == null) {
+            return 0f;
+        }
+        pending = Math.min(pending, Math.max(0f, cfg.getEffectiveHealthCap(healthValue.getMax()) - healthValue.get()));
+
+        // Stats may only be changed by the world's own thread
+        if (pending > 0 && !state.settleQueued) {
+            state.settleQueued = true;
+            store.getExternalData().getWorld().execute(() -> settleQueued(ref));
+        }
+        return pending;
+    }
+
+    /**
+     * Settles an entity whose pending heal was read through the API.
+     */
+    private void settleQueued(Ref<EntityStore> ref) {
+        if (!ref.isValid()) {
+            return;
+        }
+        Store<EntityStore> store = ref.getStore();
+        Object key = keyOf(store, ref);
+        NpcState state = states.get(key);
+        RegenSettings cfg = configManager.getSettings();
+        if (state == null || !cfg.isEnabled()) {
+            return;
+        }
+        state.settleQueued = false;
+        long now = System.currentTimeMillis();
+        float regenAmount = pendingHeal(cfg, state, key, now);
+        state.lastSettledTime = now;
+        if (regenAmount > 0) {
+            heal(cfg, state, store.getComponent(ref, statMapType), regenAmount);
+        }
+    }
+
+    /**
+     * Closed-form regeneration since the last settle, excluding the damage delay.
+     */
+    private static float pendingHeal(RegenSettings cfg, NpcState state, Object key, long now) {
+        DamageTracker.DamageRecord damage = DamageTracker.getRecord(key);
+        long from = Math.max(state.lastSettledTime, damage != null ? damage.getRegenBlockedUntil() : 0L);
+        if (now <= from) {
+            return 0f;
+        }
+        return cfg.getAmountHP() * ((now - from) / 1000f) / cfg.getIntervalSeconds();
+    }
+
+    /**
+     * Applies the pending heal, clamped to the health cap, and marks the entity as settled.
+     */
+    private void settle(RegenSettings cfg, NpcState state, Object key, int entityIndex,
+                        ArchetypeChunk<EntityStore> chunk, long now) {
+        // Catch up on the time since the last update, excluding the damage delay
+        float regenAmount = pendingHeal(cfg, state, key, now);
+        state.lastSettledTime = now;
+        if (regenAmount > 0) {
+            heal(cfg, state, chunk.getComponent(entityIndex, statMapType), regenAmount);
+        }
+    }
+
+    /**
+     * Heals an entity up to its health cap and remembers whether it is full.
+     */
+    private void heal(RegenSettings cfg, NpcState state, @Nullable EntityStatMap statMap, float regenAmount) {
+        EntityStatValue healthValue = healthOf(statMap);
+        if (healthValue == null) {
+            return;
+        }
+
+        float currentHealth = healthValue.get();
+        float effectiveCap = cfg.getEffectiveHealthCap(healthValue.getMax());
+        state.full = currentHealth + regenAmount >= effectiveCap;
+        if (currentHealth >= effectiveCap) {
+            return;
+        }
+        regenAmount = Math.min(regenAmount, effectiveCap - currentHealth);
+        statMap.addStatValue(cachedHealthIndex, regenAmount);
+    }
+
+    @Nullable
+    private EntityStatValue healthOf(@Nullable EntityStatMap statMap) {
+        // Cache health index
+        if (cachedHealthIndex == Integer.MIN_VALUE) {
+            cachedHealthIndex = DefaultEntityStatTypes.getHealth();
+            if (cachedHealthIndex == Integer.MIN_VALUE) {
+                return null;
+            }
+        }
+        return statMap != null ? statMap.get(cachedHealthIndex) : null;
+    }
+
+    /**
+     * Removes entities that have not been seen for a while and recounts the LOD buckets
+     * of the world's entities.
+     */
+    private void sweepIfNeeded(Store<EntityStore> store, WorldNpcs world) {
+        long now = System.currentTimeMillis();
+        if (now - world.lastSweepTime < SWEEP_INTERVAL_MS) {
+            return;
+        }
+        world.lastSweepTime = now;
+
+        RegenSettings cfg = configManager.getSettings();
+        RegenMetrics.ensureNpcLodBuckets(cfg.getLodBucketCount());
+        long[] population = new long[cfg.getLodBucketCount()];
+
+        Iterator<Map.Entry<Object, NpcState>> iterator = states.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Object, NpcState> entry = iterator.next();
+            NpcState state = entry.getValue();
+            // Only a UUID finds the entity again after a reload
+            long maxAge = !state.full && entry.getKey() instanceof NpcKey ? UNSETTLED_STATE_MAX_AGE_MS : STATE_MAX_AGE_MS;
+            // Unseen entities are removed by any world, in case theirs was unloaded
+            if (now - state.lastSeenTime > maxAge) {
+                iterator.remove();
+            } else if (state.owner == store && state.bucket >= 0 && state.bucket < population.length) {
+                population[state.bucket]++;
+            }
+        }
+        world.population = population;
+        worlds.values().removeIf(other -> now - other.lastTickTime >= SWEEP_INTERVAL_MS);
+
+        long[] total = new long[population.length];
+        for (WorldNpcs other : worlds.values()) {
+            long[] counts = other.population;
+            for (int i = 0; i < counts.length && i < total.length; i++) {
+                total[i] += counts[i];
+            }
+        }
+        RegenMetrics.setNpcLodPopulation(total);
+
+        LOGGER.atFine().log("NPC regeneration sweep: " + states.size() + " tracked entities");
+    }
+
+    /**
+     * Per-entity state of the NPC regeneration.
+     */
+    private static final class NpcState {
+        Ref<EntityStore> ref;
+        Store<EntityStore> owner;
+        long lastSettledTime;
+        long nextUpdateTime;
+        long lastSeenTime;
+        int bucket = -1;
+        boolean full;
+        volatile boolean settleQueued;
+    }
+
+    /**
+     * NPC regeneration state of one world.
+     */
+    private static final class WorldNpcs {
+        long tickCount;
+        long lastSweepTime;
+        // Read by the other worlds' sweeps
+        volatile long lastTickTime;
+        volatile long[] population = new long[0];
+    }
+
+    /**
+     * UUID of a non-player entity, kept apart from player UUIDs so the entity is never
+     * published or reported as a player.
+     */
+    static final class NpcKey {
+        private final UUID uuid;
+
+        NpcKey(UUID uuid) {
+            this.uuid = uuid;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof NpcKey && ((NpcKey) other).uuid.equals(uuid);
+        }
+
+        @Override
+        public int hashCode() {
+            return uuid.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "npc " + uuid;
+        }
+    }
+}
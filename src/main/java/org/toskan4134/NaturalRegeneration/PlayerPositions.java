@@ -0,0 +1,85 @@
+package org.toskan4134.NaturalRegeneration;
+
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Player positions of the previous tick, per world.
+ * Filled by the player regeneration system and read by the NPC regeneration
+ * system to decide how often each NPC is updated.
+ */
+public class PlayerPositions {
+
+    private final Map<Store<EntityStore>, Frame> frames = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the positions of a world.
+     */
+    @Nonnull
+    public Frame get(@Nonnull Store<EntityStore> store) {
+        return frames.computeIfAbsent(store, k -> new Frame());
+    }
+
+    /**
+     * Double-buffered positions of one world.
+     * Writes go to the back buffer, reads see the last complete tick.
+     */
+    public static final class Frame {
+        private double[] frontX = new double[16];
+        private double[] frontZ = new double[16];
+        private int frontCount;
+
+        private double[] backX = new double[16];
+        private double[] backZ = new double[16];
+        private int backCount;
+
+        /**
+         * Publishes the positions written during the previous tick and starts a new one.
+         */
+        public synchronized void swap() {
+            double[] x = frontX;
+            double[] z = frontZ;
+            frontX = backX;
+            frontZ = backZ;
+            frontCount = backCount;
+            backX = x;
+            backZ = z;
+            backCount = 0;
+        }
+
+        /**
+         * Records a player position for the current tick.
+         */
+        public synchronized void add(double x, double z) {
+            if (backCount == backX.length) {
+                backX = Arrays.copyOf(backX, backCount * 2);
+                backZ = Arrays.copyOf(backZ, backCount * 2);
+            }
+            backX[backCount] = x;
+            backZ[backCount] = z;
+            backCount++;
+        }
+
+        /**
+         * Gets the horizontal squared distance to the nearest player,
+         * or Double.MAX_VALUE if there are no players.
+         */
+        public synchronized double nearestDistanceSq(double x, double z) {
+            double nearest = Double.MAX_VALUE;
+            for (int i = 0; i < frontCount; i++) {
+                double dx = frontX[i] - x;
+                double dz = frontZ[i] - z;
+                double distanceSq = dx * dx + dz * dz;
+                if (distanceSq < nearest) {
+                    nearest = distanceSq;
+                }
+            }
+            return nearest;
+        }
+    }
+}
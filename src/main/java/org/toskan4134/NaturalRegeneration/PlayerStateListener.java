@@ -0,0 +1,94 @@
+package org.toskan4134.NaturalRegeneration;
+
+import com.hypixel.hytale.event.EventRegistration;
+import com.hypixel.hytale.server.core.event.events.player.PlayerDisconnectEvent;
+import com.hypixel.hytale.server.core.event.events.player.PlayerReadyEvent;
+import com.hypixel.hytale.server.core.plugin.JavaPlugin;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+
+import javax.annotation.Nonnull;
+import java.util.UUID;
+
+/**
+ * Listens for player lifecycle events to keep per-player regeneration state in sync.
+ * Saved damage state is loaded lazily when a player joins, together with the
+ * state shared by other servers through the {@link DamageStateStore}. When a
+ * player leaves, their regeneration and damage state is evicted (and saved for
+ * the next join). Changing world needs nothing, as that state is keyed by UUID.
+ */
+public class PlayerStateListener {
+
+    private final RegenStateSnapshot snapshot;
+    private final DamageStateStore damageStore;
+    private final RegenerationTickSystem tickSystem;
+    private EventRegistration<?, ?> readyRegistration;
+    private EventRegistration<?, ?> disconnectRegistration;
+
+    public PlayerStateListener(@Nonnull RegenStateSnapshot snapshot, @Nonnull DamageStateStore damageStore,
+                               @Nonnull RegenerationTickSystem tickSystem) {
+        this.snapshot = snapshot;
+        this.damageStore = damageStore;
+        this.tickSystem = tickSystem;
+    }
+
+    /**
+     * Registers the player event listeners with the plugin's event registry.
+     *
+     * @param plugin the plugin to register with
+     */
+    public void register(@Nonnull JavaPlugin plugin) {
+        readyRegistration = plugin.getEventRegistry().registerGlobal(
+                PlayerReadyEvent.class,
+                this::onPlayerReady
+        );
+        disconnectRegistration = plugin.getEventRegistry().registerGlobal(
+                PlayerDisconnectEvent.class,
+                this::onPlayerDisconnect
+        );
+    }
+
+    /**
+     * Unregisters the event listeners.
+     */
+    public void unregister() {
+        if (readyRegistration != null) {
+            readyRegistration.unregister();
+            readyRegistration = null;
+        }
+        if (disconnectRegistration != null) {
+            disconnectRegistration.unregister();
+            disconnectRegistration = null;
+        }
+    }
+
+    /**
+     * Called when a player is ready (fully joined).
+     * Keeps the state of a player who left and came back before it was evicted,
+     * and starts loading the player's saved and shared state in the background.
+     *
+     * @param event the player ready event
+     */
+    private void onPlayerReady(@Nonnull PlayerReadyEvent event) {
+        UUID uuid = event.getPlayer().getUuid();
+        tickSystem.cancelEviction(uuid);
+        snapshot.requestRestore(uuid);
+        damageStore.fetch(uuid).thenAccept(state -> {
+            if (state != null && !state.isExpired(System.currentTimeMillis())) {
+                snapshot.offerRestore(uuid, state.getLastDamageTime(), state.getRegenBlockedUntil());
+            }
+        });
+    }
+
+    /**
+     * Called when a player leaves the server.
+     * Evicts their state instead of leaving it to the age sweep.
+     *
+     * @param event the player disconnect event
+     */
+    private void onPlayerDisconnect(@Nonnull PlayerDisconnectEvent event) {
+        PlayerRef playerRef = event.getPlayerRef();
+        if (playerRef != null) {
+            tickSystem.requestEviction(playerRef.getUuid());
+        }
+    }
+}
@@ -3,6 +3,11 @@ package org.toskan4134.NaturalRegeneration;
 import com.hypixel.hytale.codec.Codec;
 import com.hypixel.hytale.codec.KeyedCodec;
 import com.hypixel.hytale.codec.builder.BuilderCodec;
+import com.hypixel.hytale.codec.codecs.array.ArrayCodec;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Configuration for the natural regeneration plugin.
@@ -10,6 +15,17 @@ import com.hypixel.hytale.codec.builder.BuilderCodec;
  */
 public class RegenConfig {
 
+    // Bump when options are added, so existing files are rewritten once with the new defaults
+    public static final int CONFIG_VERSION = 3;
+
+    public static final String NPC_MODE_LOD = "Lod";
+    public static final String NPC_MODE_LAZY = "Lazy";
+    public static final String STORE_MEMORY = "Memory";
+    public static final String STORE_SOCKET = "Socket";
+    public static final float DEFAULT_ZONE_CELL_SIZE = 32.0f;
+    public static final String TELEMETRY_JSON_LINES = RegenTelemetry.FORMAT_JSON_LINES;
+    public static final String TELEMETRY_CSV = RegenTelemetry.FORMAT_CSV;
+
     // Codec definition for serialization/deserialization
     public static final BuilderCodec<RegenConfig> CODEC = BuilderCodec.builder(RegenConfig.class, RegenConfig::new)
             .append(new KeyedCodec<>("Enabled", Codec.BOOLEAN),
@@ -36,6 +52,98 @@ public class RegenConfig {
                     (config, value, info) -> config.checkForUpdates = value,
                     (config, info) -> config.checkForUpdates)
             .add()
+            .append(new KeyedCodec<>("OfflineMode", Codec.BOOLEAN),
+                    (config, value, info) -> config.offlineMode = value,
+                    (config, info) -> config.offlineMode)
+            .add()
+            .append(new KeyedCodec<>("ConfigVersion", Codec.INTEGER),
+                    (config, value, info) -> config.configVersion = value,
+                    (config, info) -> config.configVersion)
+            .add()
+            .append(new KeyedCodec<>("DamageRules", new ArrayCodec<>(DamageRule.CODEC, DamageRule[]::new)),
+                    (config, value, info) -> config.damageRules = value,
+                    (config, info) -> config.damageRules)
+            .add()
+            .append(new KeyedCodec<>("StatRules", new ArrayCodec<>(StatRule.CODEC, StatRule[]::new)),
+                    (config, value, info) -> config.statRules = value,
+                    (config, info) -> config.statRules)
+            .add()
+            .append(new KeyedCodec<>("PauseConditions", new ArrayCodec<>(PauseCondition.CODEC, PauseCondition[]::new)),
+                    (config, value, info) -> config.pauseConditions = value,
+                    (config, info) -> config.pauseConditions)
+            .add()
+            .append(new KeyedCodec<>("NpcRegeneration", Codec.BOOLEAN),
+                    (config, value, info) -> config.npcRegeneration = value,
+                    (config, info) -> config.npcRegeneration)
+            .add()
+            .append(new KeyedCodec<>("NpcLodBuckets", new ArrayCodec<>(LodBucket.CODEC, LodBucket[]::new)),
+                    (config, value, info) -> config.npcLodBuckets = value,
+                    (config, info) -> config.npcLodBuckets)
+            .add()
+            .append(new KeyedCodec<>("NpcRegenerationMode", Codec.STRING),
+                    (config, value, info) -> config.npcRegenerationMode = value,
+                    (config, info) -> config.npcRegenerationMode)
+            .add()
+            .append(new KeyedCodec<>("NpcLazySweepSeconds", Codec.FLOAT),
+                    (config, value, info) -> config.npcLazySweepSeconds = value,
+                    (config, info) -> config.npcLazySweepSeconds)
+            .add()
+            .append(new KeyedCodec<>("TickBudgetMicros", Codec.INTEGER),
+                    (config, value, info) -> config.tickBudgetMicros = value,
+                    (config, info) -> config.tickBudgetMicros)
+            .add()
+            .append(new KeyedCodec<>("AdaptiveCadence", Codec.BOOLEAN),
+                    (config, value, info) -> config.adaptiveCadence = value,
+                    (config, info) -> config.adaptiveCadence)
+            .add()
+            .append(new KeyedCodec<>("AdaptiveTickMs", Codec.FLOAT),
+                    (config, value, info) -> config.adaptiveTickMs = value,
+                    (config, info) -> config.adaptiveTickMs)
+            .add()
+            .append(new KeyedCodec<>("AdaptiveMaxStretch", Codec.FLOAT),
+                    (config, value, info) -> config.adaptiveMaxStretch = value,
+                    (config, info) -> config.adaptiveMaxStretch)
+            .add()
+            .append(new KeyedCodec<>("DamageStateStore", Codec.STRING),
+                    (config, value, info) -> config.damageStateStore = value,
+                    (config, info) -> config.damageStateStore)
+            .add()
+            .append(new KeyedCodec<>("DamageStateStoreAddress", Codec.STRING),
+                    (config, value, info) -> config.damageStateStoreAddress = value,
+                    (config, info) -> config.damageStateStoreAddress)
+            .add()
+            .append(new KeyedCodec<>("Zones", new ArrayCodec<>(ZoneRule.CODEC, ZoneRule[]::new)),
+                    (config, value, info) -> config.zones = value,
+                    (config, info) -> config.zones)
+            .add()
+            .append(new KeyedCodec<>("ZoneCellSize", Codec.FLOAT),
+                    (config, value, info) -> config.zoneCellSize = value,
+                    (config, info) -> config.zoneCellSize)
+            .add()
+            .append(new KeyedCodec<>("HealCoalesceHP", Codec.FLOAT),
+                    (config, value, info) -> config.healCoalesceHP = value,
+                    (config, info) -> config.healCoalesceHP)
+            .add()
+            .append(new KeyedCodec<>("Telemetry", Codec.BOOLEAN),
+                    (config, value, info) -> config.telemetry = value,
+                    (config, info) -> config.telemetry)
+            .add()
+            .append(new KeyedCodec<>("TelemetryFormat", Codec.STRING),
+                    (config, value, info) -> config.telemetryFormat = value,
+                    (config, info) -> config.telemetryFormat)
+            .add()
+            .append(new KeyedCodec<>("TelemetryWindowSeconds", Codec.FLOAT),
+                    (config, value, info) -> config.telemetryWindowSeconds = value,
+                    (config, info) -> config.telemetryWindowSeconds)
+            .add()
+            .append(new KeyedCodec<>("TelemetryMaxFileMB", Codec.INTEGER),
+                    (config, value, info) -> config.telemetryMaxFileMB = value,
+                    (config, info) -> config.telemetryMaxFileMB)
+            .add()
+            .append(new KeyedCodec<>("TelemetryMaxFiles", Codec.INTEGER),
+                    (config, value, info) -> config.telemetryMaxFiles = value,
+                    (config, info) -> config.telemetryMaxFiles)
+            .add()
             .build();
 
     // Configuration values with defaults
@@ -45,6 +153,33 @@ public class RegenConfig {
     private float intervalSeconds = 1.0f;
     private String healthCap = ""; // Empty means no cap. Can be "80" (absolute) or "80%" (percentage)
     private boolean checkForUpdates = true;
+    private boolean offlineMode = false; // No outbound internet connections (update checks)
+    private int configVersion = 0; // Version of the file; 0 when missing or older than the key
+    private DamageRule[] damageRules = new DamageRule[0]; // Per-source delay overrides
+    private StatRule[] statRules = new StatRule[0]; // Regeneration of other stats (stamina, mana...)
+    private PauseCondition[] pauseConditions = new PauseCondition[0]; // Stat levels that pause health regeneration
+    private boolean npcRegeneration = false;
+    private LodBucket[] npcLodBuckets = {
+            new LodBucket(48.0f, 1.0f),
+            new LodBucket(128.0f, 5.0f),
+            new LodBucket(100_000.0f, 30.0f)
+    };
+    private String npcRegenerationMode = NPC_MODE_LOD; // "Lod" or "Lazy"
+    private float npcLazySweepSeconds = 60.0f;
+    private int tickBudgetMicros = 0; // 0 means no budget
+    private boolean adaptiveCadence = false;
+    private float adaptiveTickMs = 50.0f; // Smoothed tick time above which the interval stretches
+    private float adaptiveMaxStretch = 4.0f;
+    private String damageStateStore = STORE_MEMORY; // "Memory" or "Socket"
+    private String damageStateStoreAddress = "127.0.0.1:25590";
+    private ZoneRule[] zones = new ZoneRule[0]; // Regions with boosted or suppressed regeneration
+    private float zoneCellSize = DEFAULT_ZONE_CELL_SIZE;
+    private float healCoalesceHP = 0.0f; // 0 means every heal is written
+    private boolean telemetry = false;
+    private String telemetryFormat = TELEMETRY_JSON_LINES; // "JsonLines" or "Csv"
+    private float telemetryWindowSeconds = 10.0f;
+    private int telemetryMaxFileMB = 16;
+    private int telemetryMaxFiles = 10;
 
     public RegenConfig() {
     }
@@ -151,7 +286,648 @@ public class RegenConfig {
         this.checkForUpdates = checkForUpdates;
     }
 
+    // Damage rules getters and setters
+    public DamageRule[] getDamageRules() {
+        return damageRules != null ? damageRules : new DamageRule[0];
+    }
+
+    public void setDamageRules(DamageRule[] damageRules) {
+        this.damageRules = damageRules != null ? damageRules : new DamageRule[0];
+    }
+
+    // Stat rules getters and setters
+    public StatRule[] getStatRules() {
+        return statRules != null ? statRules : new StatRule[0];
+    }
+
+    public void setStatRules(StatRule[] statRules) {
+        this.statRules = statRules != null ? statRules : new StatRule[0];
+    }
+
+    // NPC regeneration getters and setters
+    public boolean isNpcRegeneration() {
+        return npcRegeneration;
+    }
+
+    public void setNpcRegeneration(boolean npcRegeneration) {
+        this.npcRegeneration = npcRegeneration;
+    }
+
+    public LodBucket[] getNpcLodBuckets() {
+        return npcLodBuckets != null ? npcLodBuckets : new LodBucket[0];
+    }
+
+    public String getNpcRegenerationMode() {
+        return npcRegenerationMode != null ? npcRegenerationMode : NPC_MODE_LOD;
+    }
+
+    public void setNpcRegenerationMode(String npcRegenerationMode) {
+        this.npcRegenerationMode = npcRegenerationMode != null ? npcRegenerationMode.trim() : NPC_MODE_LOD;
+    }
+
+    public boolean isNpcLazy() {
+        return NPC_MODE_LAZY.equalsIgnoreCase(getNpcRegenerationMode());
+    }
+
+    public float getNpcLazySweepSeconds() {
+        return npcLazySweepSeconds;
+    }
+
+    public void setNpcLazySweepSeconds(float npcLazySweepSeconds) {
+        this.npcLazySweepSeconds = Math.max(1.0f, npcLazySweepSeconds);
+    }
+
+    public int getTickBudgetMicros() {
+        return tickBudgetMicros;
+    }
+
+    public void setTickBudgetMicros(int tickBudgetMicros) {
+        this.tickBudgetMicros = Math.max(0, tickBudgetMicros);
+    }
+
+    public boolean isAdaptiveCadence() {
+        return adaptiveCadence;
+    }
+
+    public void setAdaptiveCadence(boolean adaptiveCadence) {
+        this.adaptiveCadence = adaptiveCadence;
+    }
+
+    public float getAdaptiveTickMs() {
+        return adaptiveTickMs;
+    }
+
+    public void setAdaptiveTickMs(float adaptiveTickMs) {
+        this.adaptiveTickMs = Math.max(1.0f, adaptiveTickMs);
+    }
+
+    public float getAdaptiveMaxStretch() {
+        return adaptiveMaxStretch;
+    }
+
+    public void setAdaptiveMaxStretch(float adaptiveMaxStretch) {
+        this.adaptiveMaxStretch = Math.max(1.0f, adaptiveMaxStretch);
+    }
+
+    public String getDamageStateStore() {
+        return damageStateStore != null ? damageStateStore : STORE_MEMORY;
+    }
+
+    public boolean isSocketDamageStateStore() {
+        return STORE_SOCKET.equalsIgnoreCase(getDamageStateStore());
+    }
+
+    public String getDamageStateStoreAddress() {
+        return damageStateStoreAddress != null ? damageStateStoreAddress : "";
+    }
+
+    /**
+     * Gets the host of DamageStateStoreAddress ("host:port").
+     */
+    public String getDamageStateStoreHost() {
+        String address = getDamageStateStoreAddress();
+        int separator = address.lastIndexOf(':');
+        return separator > 0 ? address.substring(0, separator) : address;
+    }
+
+    /**
+     * Gets the port of DamageStateStoreAddress, or -1 if it is missing or invalid.
+     */
+    public int getDamageStateStorePort() {
+        String address = getDamageStateStoreAddress();
+        int separator = address.lastIndexOf(':');
+        try {
+            int port = Integer.parseInt(address.substring(separator + 1).trim());
+            return separator > 0 && port > 0 && port <= 65535 ? port : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public PauseCondition[] getPauseConditions() {
+        return pauseConditions != null ? pauseConditions : new PauseCondition[0];
+    }
+
+    public ZoneRule[] getZones() {
+        return zones != null ? zones : new ZoneRule[0];
+    }
+
+    public float getZoneCellSize() {
+        return zoneCellSize;
+    }
+
+    public float getHealCoalesceHP() {
+        return healCoalesceHP;
+    }
+
+    public void setHealCoalesceHP(float healCoalesceHP) {
+        this.healCoalesceHP = Math.max(0.0f, healCoalesceHP);
+    }
+
+    public boolean isTelemetry() {
+        return telemetry;
+    }
+
+    public void setTelemetry(boolean telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    public String getTelemetryFormat() {
+        return telemetryFormat != null ? telemetryFormat : TELEMETRY_JSON_LINES;
+    }
+
+    public void setTelemetryFormat(String telemetryFormat) {
+        this.telemetryFormat = telemetryFormat;
+    }
+
+    public boolean isTelemetryCsv() {
+        return TELEMETRY_CSV.equalsIgnoreCase(getTelemetryFormat());
+    }
+
+    public float getTelemetryWindowSeconds() {
+        return telemetryWindowSeconds;
+    }
+
+    public void setTelemetryWindowSeconds(float telemetryWindowSeconds) {
+        this.telemetryWindowSeconds = Math.max(1.0f, telemetryWindowSeconds);
+    }
+
+    public int getTelemetryMaxFileMB() {
+        return telemetryMaxFileMB;
+    }
+
+    public int getTelemetryMaxFiles() {
+        return telemetryMaxFiles;
+    }
+
+    public boolean isOfflineMode() {
+        return offlineMode;
+    }
+
+    public int getConfigVersion() {
+        return configVersion;
+    }
+
+    public void setConfigVersion(int configVersion) {
+        this.configVersion = configVersion;
+    }
+
     public void toggle() {
         this.enabled = !this.enabled;
     }
+
+    /**
+     * Copies every value from another configuration into this one.
+     *
+     * @param other the configuration to copy from
+     */
+    public void copyFrom(@Nonnull RegenConfig other) {
+        this.enabled = other.enabled;
+        this.delaySeconds = other.delaySeconds;
+        this.amountHP = other.amountHP;
+        this.intervalSeconds = other.intervalSeconds;
+        this.healthCap = other.healthCap;
+        this.checkForUpdates = other.checkForUpdates;
+        this.offlineMode = other.offlineMode;
+        this.configVersion = other.configVersion;
+        this.damageRules = other.getDamageRules().clone();
+        this.statRules = other.getStatRules().clone();
+        this.pauseConditions = other.getPauseConditions().clone();
+        this.npcRegeneration = other.npcRegeneration;
+        this.npcLodBuckets = other.getNpcLodBuckets().clone();
+        this.npcRegenerationMode = other.npcRegenerationMode;
+        this.npcLazySweepSeconds = other.npcLazySweepSeconds;
+        this.tickBudgetMicros = other.tickBudgetMicros;
+        this.adaptiveCadence = other.adaptiveCadence;
+        this.adaptiveTickMs = other.adaptiveTickMs;
+        this.adaptiveMaxStretch = other.adaptiveMaxStretch;
+        this.damageStateStore = other.damageStateStore;
+        this.damageStateStoreAddress = other.damageStateStoreAddress;
+        this.zones = other.getZones().clone();
+        this.zoneCellSize = other.zoneCellSize;
+        this.healCoalesceHP = other.healCoalesceHP;
+        this.telemetry = other.telemetry;
+        this.telemetryFormat = other.telemetryFormat;
+        this.telemetryWindowSeconds = other.telemetryWindowSeconds;
+        this.telemetryMaxFileMB = other.telemetryMaxFileMB;
+        this.telemetryMaxFiles = other.telemetryMaxFiles;
+    }
+
+    /**
+     * Validates values that may have been written directly to the config file,
+     * bypassing the clamping done by the setters.
+     *
+     * @return a list of problems, empty if the configuration is valid
+     */
+    @Nonnull
+    public List<String> validate() {
+        List<String> errors = new ArrayList<>();
+        if (!(delaySeconds >= 0)) {
+            errors.add("DelaySeconds must be >= 0 (was " + delaySeconds + ")");
+        }
+        if (!(amountHP > 0)) {
+            errors.add("AmountHP must be > 0 (was " + amountHP + ")");
+        }
+        if (!(intervalSeconds > 0)) {
+            errors.add("IntervalSeconds must be > 0 (was " + intervalSeconds + ")");
+        }
+        if (hasHealthCap()) {
+            String value = isHealthCapPercentage() ? healthCap.substring(0, healthCap.length() - 1) : healthCap;
+            try {
+                if (Float.parseFloat(value) <= 0) {
+                    errors.add("HealthCap must be a positive value (was \"" + healthCap + "\")");
+                }
+            } catch (NumberFormatException e) {
+                errors.add("HealthCap must be a number or percentage (was \"" + healthCap + "\")");
+            }
+        }
+        for (DamageRule rule : getDamageRules()) {
+            if (rule == null || rule.getSource().isEmpty()) {
+                errors.add("DamageRules entries need a Source");
+            } else if (!(rule.getDelaySeconds() >= 0)) {
+                errors.add("DamageRules delay for " + rule.getSource() + " must be >= 0 (was " + rule.getDelaySeconds() + ")");
+            }
+        }
+        for (StatRule rule : getStatRules()) {
+            if (rule == null || rule.getStat().isEmpty()) {
+                errors.add("StatRules entries need a Stat");
+                continue;
+            }
+            if (rule.getStat().equalsIgnoreCase("Health")) {
+                errors.add("StatRules cannot contain Health, use the top-level options");
+            }
+            if (!(rule.getDelaySeconds() >= 0)) {
+                errors.add("StatRules delay for " + rule.getStat() + " must be >= 0 (was " + rule.getDelaySeconds() + ")");
+            }
+            if (!(rule.getAmount() > 0)) {
+                errors.add("StatRules amount for " + rule.getStat() + " must be > 0 (was " + rule.getAmount() + ")");
+            }
+            if (!(rule.getIntervalSeconds() > 0)) {
+                errors.add("StatRules interval for " + rule.getStat() + " must be > 0 (was " + rule.getIntervalSeconds() + ")");
+            }
+            if (!rule.getCap().isEmpty() && Float.isNaN(parseCapValue(rule.getCap()))) {
+                errors.add("StatRules cap for " + rule.getStat() + " must be a number or percentage (was \"" + rule.getCap() + "\")");
+            }
+        }
+        for (PauseCondition condition : getPauseConditions()) {
+            if (condition == null || condition.getStat().isEmpty()) {
+                errors.add("PauseConditions entries need a Stat");
+                continue;
+            }
+            if (condition.getBelow().isEmpty() && condition.getAbove().isEmpty()) {
+                errors.add("PauseConditions for " + condition.getStat() + " need Below or Above");
+            }
+            if (!condition.getBelow().isEmpty() && Float.isNaN(parseCapValue(condition.getBelow()))) {
+                errors.add("PauseConditions Below for " + condition.getStat() + " must be a number or percentage (was \"" + condition.getBelow() + "\")");
+            }
+            if (!condition.getAbove().isEmpty() && Float.isNaN(parseCapValue(condition.getAbove()))) {
+                errors.add("PauseConditions Above for " + condition.getStat() + " must be a number or percentage (was \"" + condition.getAbove() + "\")");
+            }
+        }
+        if (!isNpcLazy() && !NPC_MODE_LOD.equalsIgnoreCase(getNpcRegenerationMode())) {
+            errors.add("NpcRegenerationMode must be \"" + NPC_MODE_LOD + "\" or \"" + NPC_MODE_LAZY + "\" (was \"" + npcRegenerationMode + "\")");
+        }
+        if (!(npcLazySweepSeconds > 0)) {
+            errors.add("NpcLazySweepSeconds must be > 0 (was " + npcLazySweepSeconds + ")");
+        }
+        if (tickBudgetMicros < 0) {
+            errors.add("TickBudgetMicros must be >= 0 (was " + tickBudgetMicros + ")");
+        }
+        if (!(adaptiveTickMs >= 1)) {
+            errors.add("AdaptiveTickMs must be >= 1 (was " + adaptiveTickMs + ")");
+        }
+        if (!(adaptiveMaxStretch >= 1)) {
+            errors.add("AdaptiveMaxStretch must be >= 1 (was " + adaptiveMaxStretch + ")");
+        }
+        if (!isSocketDamageStateStore() && !STORE_MEMORY.equalsIgnoreCase(getDamageStateStore())) {
+            errors.add("DamageStateStore must be \"" + STORE_MEMORY + "\" or \"" + STORE_SOCKET + "\" (was \"" + damageStateStore + "\")");
+        }
+        if (isSocketDamageStateStore() && (getDamageStateStorePort() < 0 || getDamageStateStoreHost().isBlank())) {
+            errors.add("DamageStateStoreAddress must be host:port (was \"" + damageStateStoreAddress + "\")");
+        }
+        for (ZoneRule zone : getZones()) {
+            if (zone == null || zone.getName().isEmpty()) {
+                errors.add("Zones entries need a Name");
+            } else if (!(zone.getMultiplier() >= 0)) {
+                errors.add("Zones multiplier for " + zone.getName() + " must be >= 0 (was " + zone.getMultiplier() + ")");
+            }
+        }
+        if (!(zoneCellSize >= 1)) {
+            errors.add("ZoneCellSize must be >= 1 (was " + zoneCellSize + ")");
+        }
+        if (!(healCoalesceHP >= 0)) {
+            errors.add("HealCoalesceHP must be >= 0 (was " + healCoalesceHP + ")");
+        }
+        if (!isTelemetryCsv() && !TELEMETRY_JSON_LINES.equalsIgnoreCase(getTelemetryFormat())) {
+            errors.add("TelemetryFormat must be \"" + TELEMETRY_JSON_LINES + "\" or \"" + TELEMETRY_CSV + "\" (was \"" + telemetryFormat + "\")");
+        }
+        if (!(telemetryWindowSeconds >= 1)) {
+            errors.add("TelemetryWindowSeconds must be >= 1 (was " + telemetryWindowSeconds + ")");
+        }
+        if (telemetryMaxFileMB < 1) {
+            errors.add("TelemetryMaxFileMB must be >= 1 (was " + telemetryMaxFileMB + ")");
+        }
+        if (telemetryMaxFiles < 1) {
+            errors.add("TelemetryMaxFiles must be >= 1 (was " + telemetryMaxFiles + ")");
+        }
+        LodBucket[] buckets = getNpcLodBuckets();
+        if (buckets.length == 0) {
+            errors.add("NpcLodBuckets needs at least one bucket");
+        }
+        float previousDistance = 0;
+        for (LodBucket bucket : buckets) {
+            if (bucket == null || !(bucket.getMaxDistance() > previousDistance)) {
+                errors.add("NpcLodBuckets must be sorted by increasing MaxDistance");
+                break;
+            }
+            if (!(bucket.getIntervalSeconds() > 0)) {
+                errors.add("NpcLodBuckets interval must be > 0 (was " + bucket.getIntervalSeconds() + ")");
+            }
+            previousDistance = bucket.getMaxDistance();
+        }
+        return errors;
+    }
+
+    /**
+     * Parses a cap value ("80" or "80%") without the percent sign.
+     *
+     * @return the numeric value, or NaN if it is not a positive number
+     */
+    static float parseCapValue(String cap) {
+        String value = cap.endsWith("%") ? cap.substring(0, cap.length() - 1) : cap;
+        try {
+            float parsed = Float.parseFloat(value.trim());
+            return parsed > 0 ? parsed : Float.NaN;
+        } catch (NumberFormatException e) {
+            return Float.NaN;
+        }
+    }
+
+    /**
+     * Regeneration settings for a stat other than health (e.g. "Stamina", "Mana").
+     * The delay counts from the last damage received, like health.
+     */
+    public static class StatRule {
+
+        public static final BuilderCodec<StatRule> CODEC = BuilderCodec.builder(StatRule.class, StatRule::new)
+                .append(new KeyedCodec<>("Stat", Codec.STRING),
+                        (rule, value, info) -> rule.stat = value,
+                        (rule, info) -> rule.stat)
+                .add()
+                .append(new KeyedCodec<>("DelaySeconds", Codec.FLOAT),
+                        (rule, value, info) -> rule.delaySeconds = value,
+                        (rule, info) -> rule.delaySeconds)
+                .add()
+                .append(new KeyedCodec<>("Amount", Codec.FLOAT),
+                        (rule, value, info) -> rule.amount = value,
+                        (rule, info) -> rule.amount)
+                .add()
+                .append(new KeyedCodec<>("IntervalSeconds", Codec.FLOAT),
+                        (rule, value, info) -> rule.intervalSeconds = value,
+                        (rule, info) -> rule.intervalSeconds)
+                .add()
+                .append(new KeyedCodec<>("Cap", Codec.STRING),
+                        (rule, value, info) -> rule.cap = value,
+                        (rule, info) -> rule.cap)
+                .add()
+                .build();
+
+        private String stat = "";
+        private float delaySeconds = 0.0f;
+        private float amount = 1.0f;
+        private float intervalSeconds = 1.0f;
+        private String cap = ""; // Same format as HealthCap
+
+        public StatRule() {
+        }
+
+        public String getStat() {
+            return stat != null ? stat.trim() : "";
+        }
+
+        public float getDelaySeconds() {
+            return delaySeconds;
+        }
+
+        public long getDelayMs() {
+            return (long) (delaySeconds * 1000);
+        }
+
+        public float getAmount() {
+            return amount;
+        }
+
+        public float getIntervalSeconds() {
+            return intervalSeconds;
+        }
+
+        public String getCap() {
+            return cap != null ? cap.trim() : "";
+        }
+    }
+
+    /**
+     * Pauses passive health regeneration while a stat is below or above a level,
+     * e.g. {"Stat": "Hunger", "Below": "10%"}. Levels use the HealthCap format
+     * ("20" absolute or "20%" of the stat's max); an empty level is not checked.
+     */
+    public static class PauseCondition {
+
+        public static final BuilderCodec<PauseCondition> CODEC = BuilderCodec.builder(PauseCondition.class, PauseCondition::new)
+                .append(new KeyedCodec<>("Stat", Codec.STRING),
+                        (condition, value, info) -> condition.stat = value,
+                        (condition, info) -> condition.stat)
+                .add()
+                .append(new KeyedCodec<>("Below", Codec.STRING),
+                        (condition, value, info) -> condition.below = value,
+                        (condition, info) -> condition.below)
+                .add()
+                .append(new KeyedCodec<>("Above", Codec.STRING),
+                        (condition, value, info) -> condition.above = value,
+                        (condition, info) -> condition.above)
+                .add()
+                .build();
+
+        private String stat = "";
+        private String below = "";
+        private String above = "";
+
+        public PauseCondition() {
+        }
+
+        public String getStat() {
+            return stat != null ? stat.trim() : "";
+        }
+
+        public String getBelow() {
+            return below != null ? below.trim() : "";
+        }
+
+        public String getAbove() {
+            return above != null ? above.trim() : "";
+        }
+    }
+
+    /**
+     * Region where passive health regeneration is multiplied by Multiplier
+     * (e.g. 2 near campfires, 0 in arenas). The box spans MinX..MaxX and
+     * MinZ..MaxZ, and MinY..MaxY if set (every height by default).
+     */
+    public static class ZoneRule {
+
+        public static final BuilderCodec<ZoneRule> CODEC = BuilderCodec.builder(ZoneRule.class, ZoneRule::new)
+                .append(new KeyedCodec<>("Name", Codec.STRING),
+                        (zone, value, info) -> zone.name = value,
+                        (zone, info) -> zone.name)
+                .add()
+                .append(new KeyedCodec<>("World", Codec.STRING),
+                        (zone, value, info) -> zone.world = value,
+                        (zone, info) -> zone.world)
+                .add()
+                .append(new KeyedCodec<>("MinX", Codec.FLOAT),
+                        (zone, value, info) -> zone.minX = value,
+                        (zone, info) -> zone.minX)
+                .add()
+                .append(new KeyedCodec<>("MinY", Codec.FLOAT),
+                        (zone, value, info) -> zone.minY = value,
+                        (zone, info) -> zone.minY)
+                .add()
+                .append(new KeyedCodec<>("MinZ", Codec.FLOAT),
+                        (zone, value, info) -> zone.minZ = value,
+                        (zone, info) -> zone.minZ)
+                .add()
+                .append(new KeyedCodec<>("MaxX", Codec.FLOAT),
+                        (zone, value, info) -> zone.maxX = value,
+                        (zone, info) -> zone.maxX)
+                .add()
+                .append(new KeyedCodec<>("MaxY", Codec.FLOAT),
+                        (zone, value, info) -> zone.maxY = value,
+                        (zone, info) -> zone.maxY)
+                .add()
+                .append(new KeyedCodec<>("MaxZ", Codec.FLOAT),
+                        (zone, value, info) -> zone.maxZ = value,
+                        (zone, info) -> zone.maxZ)
+                .add()
+                .append(new KeyedCodec<>("Multiplier", Codec.FLOAT),
+                        (zone, value, info) -> zone.multiplier = value,
+                        (zone, info) -> zone.multiplier)
+                .add()
+                .build();
+
+        private String name = "";
+        private String world = ""; // Empty applies the zone in every world
+        private float minX = 0.0f;
+        private float minY = RegenZones.WORLD_MIN_Y;
+        private float minZ = 0.0f;
+        private float maxX = 0.0f;
+        private float maxY = RegenZones.WORLD_MAX_Y;
+        private float maxZ = 0.0f;
+        private float multiplier = 1.0f;
+
+        public ZoneRule() {
+        }
+
+        public String getName() {
+            return name != null ? name.trim() : "";
+        }
+
+        public float getMultiplier() {
+            return multiplier;
+        }
+
+        /**
+         * Gets the world the zone is in, or null for every world.
+         */
+        public String getWorld() {
+            return world != null && !world.isBlank() ? world.trim() : null;
+        }
+
+        /**
+         * Creates the zone this rule describes.
+         */
+        public RegenZones.Zone toZone() {
+            return new RegenZones.Zone(getName(), getWorld(), minX, minY, minZ, maxX, maxY, maxZ, multiplier);
+        }
+    }
+
+    /**
+     * Level-of-detail bucket for NPC regeneration: entities whose nearest player is
+     * within MaxDistance blocks are updated every IntervalSeconds. Entities beyond
+     * the last bucket use the last bucket's interval.
+     */
+    public static class LodBucket {
+
+        public static final BuilderCodec<LodBucket> CODEC = BuilderCodec.builder(LodBucket.class, LodBucket::new)
+                .append(new KeyedCodec<>("MaxDistance", Codec.FLOAT),
+                        (bucket, value, info) -> bucket.maxDistance = value,
+                        (bucket, info) -> bucket.maxDistance)
+                .add()
+                .append(new KeyedCodec<>("IntervalSeconds", Codec.FLOAT),
+                        (bucket, value, info) -> bucket.intervalSeconds = value,
+                        (bucket, info) -> bucket.intervalSeconds)
+                .add()
+                .build();
+
+        private float maxDistance = 0.0f;
+        private float intervalSeconds = 1.0f;
+
+        public LodBucket() {
+        }
+
+        public LodBucket(float maxDistance, float intervalSeconds) {
+            this.maxDistance = maxDistance;
+            this.intervalSeconds = intervalSeconds;
+        }
+
+        public float getMaxDistance() {
+            return maxDistance;
+        }
+
+        public float getIntervalSeconds() {
+            return intervalSeconds;
+        }
+    }
+
+    /**
+     * Overrides the regeneration delay for one class of damage.
+     * Source is either {@link DamageRules#SOURCE_PLAYER}, {@link DamageRules#SOURCE_ENTITY}
+     * or a damage cause id (e.g. "Fall", "Drowning"). A delay of 0 means this
+     * damage never delays regeneration.
+     */
+    public static class DamageRule {
+
+        public static final BuilderCodec<DamageRule> CODEC = BuilderCodec.builder(DamageRule.class, DamageRule::new)
+                .append(new KeyedCodec<>("Source", Codec.STRING),
+                        (rule, value, info) -> rule.source = value,
+                        (rule, info) -> rule.source)
+                .add()
+                .append(new KeyedCodec<>("DelaySeconds", Codec.FLOAT),
+                        (rule, value, info) -> rule.delaySeconds = value,
+                        (rule, info) -> rule.delaySeconds)
+                .add()
+                .build();
+
+        private String source = "";
+        private float delaySeconds = 0.0f;
+
+        public DamageRule() {
+        }
+
+        public DamageRule(String source, float delaySeconds) {
+            this.source = source;
+            this.delaySeconds = delaySeconds;
+        }
+
+        public String getSource() {
+            return source != null ? source.trim() : "";
+        }
+
+        public float getDelaySeconds() {
+            return delaySeconds;
+        }
+
+        public long getDelayMs() {
+            return (long) (delaySeconds * 1000);
+        }
+    }
 }
@@ -0,0 +1,171 @@
+package org.toskan4134.NaturalRegeneration;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.util.Config;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Owns the plugin configuration and the compiled {@link RegenSettings} snapshot.
+ * All changes (commands or reloads from disk) go through this class so the
+ * snapshot read by the tick system is always republished as a whole.
+ */
+public class RegenConfigManager {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    public static final String CONFIG_NAME = "NaturalRegeneration";
+
+    // How long the file watcher waits for a save in progress before comparing the file
+    private static final long SAVE_WAIT_SECONDS = 5L;
+
+    private final Config<RegenConfig> config;
+    private final Path dataDirectory;
+
+    // Snapshot read by the systems, swapped atomically on every change
+    private volatile RegenSettings settings;
+
+    // File contents of our own last write, so the file watcher can tell it from an edit
+    @Nullable
+    private volatile byte[] savedContent;
+    private volatile CompletableFuture<Void> lastSave = CompletableFuture.completedFuture(null);
+
+    public RegenConfigManager(@Nonnull Config<RegenConfig> config, @Nonnull Path dataDirectory) {
+        this.config = config;
+        this.dataDirectory = dataDirectory;
+        this.settings = RegenSettings.compile(config.get());
+    }
+
+    /**
+     * Gets the live, editable configuration. Use {@link #update(Consumer)} to change it.
+     */
+    @Nonnull
+    public RegenConfig get() {
+        return config.get();
+    }
+
+    /**
+     * Gets the current compiled settings snapshot.
+     */
+    @Nonnull
+    public RegenSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Gets the path of the configuration file on disk.
+     */
+    @Nonnull
+    public Path getConfigPath() {
+        return dataDirectory.resolve(CONFIG_NAME + ".json");
+    }
+
+    /**
+     * Checks if the config file holds exactly what the plugin last saved, waiting for
+     * a save still in progress. Used by the file watcher to skip our own writes.
+     */
+    public boolean isOwnSave() throws InterruptedException {
+        try {
+            lastSave.get(SAVE_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // Compare whatever is on disk
+        }
+        byte[] saved = savedContent;
+        return saved != null && Arrays.equals(saved, readConfigFile());
+    }
+
+    @Nullable
+    private byte[] readConfigFile() {
+        try {
+            return Files.readAllBytes(getConfigPath());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Applies a change to the configuration, republishes the snapshot and saves it.
+     *
+     * @param change the change to apply
+     * @return the newly published settings
+     */
+    @Nonnull
+    public synchronized RegenSettings update(@Nonnull Consumer<RegenConfig> change) {
+        RegenConfig cfg = config.get();
+        change.accept(cfg);
+        settings = RegenSettings.compile(cfg);
+        save();
+        return settings;
+    }
+
+    /**
+     * Applies several changes at once. They are validated together, published as
+     * a single snapshot and saved with one write; nothing is applied if the
+     * result is invalid.
+     *
+     * @param changes the changes to apply
+     * @return the validation errors, empty if the changes were applied
+     */
+    @Nonnull
+    public synchronized List<String> updateAll(@Nonnull Consumer<RegenConfig> changes) {
+        RegenConfig candidate = new RegenConfig();
+        candidate.copyFrom(config.get());
+        changes.accept(candidate);
+        List<String> errors = candidate.validate();
+        if (errors.isEmpty()) {
+            apply(candidate);
+            save();
+        }
+        return errors;
+    }
+
+    /**
+     * Saves the configuration to disk.
+     */
+    public CompletableFuture<Void> save() {
+        CompletableFuture<Void> saved = config.save().whenComplete((result, ex) -> savedContent = readConfigFile());
+        lastSave = saved;
+        return saved;
+    }
+
+    /**
+     * Re-reads the configuration file and publishes it if it is valid.
+     * Decoding happens off the calling thread; the current settings stay active
+     * until the new ones have been validated.
+     *
+     * @return a future with the validation errors, empty if the reload was applied
+     */
+    public CompletableFuture<List<String>> reload() {
+        Config<RegenConfig> fresh = new Config<>(dataDirectory, CONFIG_NAME, RegenConfig.CODEC);
+        return CompletableFuture.supplyAsync(fresh::load)
+                .thenCompose(future -> future)
+                .thenApply(loaded -> {
+                    List<String> errors = loaded.validate();
+                    if (!errors.isEmpty()) {
+                        LOGGER.atWarning().log("Ignoring invalid configuration: " + String.join("; ", errors));
+                        return errors;
+                    }
+                    apply(loaded);
+                    // The file no longer matches our last save, so writing that back is an edit too
+                    savedContent = null;
+                    LOGGER.atInfo().log("Configuration reloaded from " + getConfigPath());
+                    return errors;
+                });
+    }
+
+    private synchronized void apply(@Nonnull RegenConfig loaded) {
+        config.get().copyFrom(loaded);
+        settings = RegenSettings.compile(loaded);
+    }
+}
@@ -0,0 +1,178 @@
+package org.toskan4134.NaturalRegeneration;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * JDK Flight Recorder events for the plugin's hot paths, so a TPS drop can be
+ * attributed to (or ruled out for) Natural Regeneration.
+ *
+ * The events are disabled by default and cost next to nothing until a recording
+ * enables them: either {@code /nr jfr start}, which also samples thread stacks,
+ * or any JFR recording that enables the "NaturalRegeneration" category. Passes
+ * and damage bursts shorter than the threshold are not recorded.
+ */
+public class RegenJfr {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    public static final long DEFAULT_THRESHOLD_MS = 2L;
+
+    private static final String CATEGORY = "NaturalRegeneration";
+    private static final Duration SAMPLE_PERIOD = Duration.ofMillis(20);
+    private static final Duration MAX_AGE = Duration.ofMinutes(30);
+
+    // Guarded by RegenJfr.class
+    @Nullable
+    private static Recording recording;
+    private static long thresholdMs;
+
+    /**
+     * Starts recording the plugin's events and execution samples.
+     *
+     * @param thresholdMs minimum duration of recorded passes and damage bursts
+     * @return false if a recording is already running
+     */
+    public static synchronized boolean start(long thresholdMs) {
+        if (recording != null) {
+            return false;
+        }
+        Duration threshold = Duration.ofMillis(Math.max(0L, thresholdMs));
+        Recording r = new Recording();
+        r.setName("NaturalRegeneration");
+        r.setToDisk(true);
+        r.setMaxAge(MAX_AGE);
+        r.enable(TickPassEvent.class).withThreshold(threshold);
+        r.enable(DamageBurstEvent.class).withThreshold(threshold);
+        r.enable(DamageCleanupEvent.class).withoutThreshold();
+        r.enable(VersionFetchEvent.class).withoutThreshold();
+        r.enable("jdk.ExecutionSample").withPeriod(SAMPLE_PERIOD);
+        r.start();
+        recording = r;
+        RegenJfr.thresholdMs = threshold.toMillis();
+        LOGGER.atInfo().log("JFR recording started (threshold " + RegenJfr.thresholdMs + " ms)");
+        return true;
+    }
+
+    /**
+     * Stops the recording and writes it to a file in the given directory.
+     *
+     * @return the written file, or null if nothing was recording
+     * @throws IOException if the recording could not be written
+     */
+    @Nullable
+    public static synchronized Path stop(@Nonnull Path directory) throws IOException {
+        Recording r = recording;
+        if (r == null) {
+            return null;
+        }
+        recording = null;
+        try {
+            r.stop();
+            Files.createDirectories(directory);
+            Path file = directory.resolve("regen-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".jfr");
+            r.dump(file);
+            LOGGER.atInfo().log("JFR recording written to " + file);
+            return file;
+        } finally {
+            r.close();
+        }
+    }
+
+    public static synchronized boolean isRecording() {
+        return recording != null;
+    }
+
+    public static synchronized long getThresholdMs() {
+        return thresholdMs;
+    }
+
+    @Name("org.toskan4134.NaturalRegeneration.TickPass")
+    @Label("Regeneration Pass")
+    @Description("One pass of the player regeneration system over a world")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    @Threshold("2 ms")
+    static final class TickPassEvent extends Event {
+        @Label("Entities")
+        int entities;
+
+        @Label("Heals")
+        int heals;
+
+        @Label("HP Healed")
+        float healed;
+
+        @Label("Damage Events")
+        @Description("Damage events drained at the start of the pass")
+        int damageEvents;
+    }
+
+    @Name("org.toskan4134.NaturalRegeneration.DamageBurst")
+    @Label("Damage Burst")
+    @Description("Damage events applied to the damage tracker in one drain")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    @Threshold("2 ms")
+    static final class DamageBurstEvent extends Event {
+        @Label("Events")
+        int events;
+
+        @Label("Damage")
+        float damage;
+
+        @Label("Overflow")
+        @Description("A burst outgrew the buffer before this drain")
+        boolean overflow;
+    }
+
+    @Name("org.toskan4134.NaturalRegeneration.DamageCleanup")
+    @Label("Damage Tracker Cleanup")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    static final class DamageCleanupEvent extends Event {
+        @Label("Removed")
+        int removed;
+
+        @Label("Remaining")
+        int remaining;
+    }
+
+    @Name("org.toskan4134.NaturalRegeneration.VersionFetch")
+    @Label("Version Check Fetch")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    static final class VersionFetchEvent extends Event {
+        @Label("URL")
+        String url;
+
+        @Label("HTTP Status")
+        int status;
+
+        @Label("Response Size")
+        @DataAmount
+        long bytes;
+    }
+}
@@ -0,0 +1,137 @@
+package org.toskan4134.NaturalRegeneration;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters reported by /nr status.
+ */
+public class RegenMetrics {
+
+    // NPC level-of-detail buckets: tracked entities (recounted every sweep) and updates applied
+    private static volatile AtomicLongArray npcLodPopulation = new AtomicLongArray(0);
+    private static volatile AtomicLongArray npcLodUpdates = new AtomicLongArray(0);
+
+    // Regeneration passes that ran out of time, and entity ticks moved to a later pass
+    private static final AtomicLong budgetOverruns = new AtomicLong();
+    private static final AtomicLong deferredTicks = new AtomicLong();
+
+    // Players whose state was evicted on disconnect or world change
+    private static final AtomicLong evictions = new AtomicLong();
+
+    // Health intervals skipped because a pause condition matched
+    private static final AtomicLong pausedIntervals = new AtomicLong();
+
+    // Heals kept server-side instead of written to the health stat (total, and per minute)
+    private static final AtomicLong coalescedHeals = new AtomicLong();
+    private static final AtomicLong coalescedThisMinute = new AtomicLong();
+    private static volatile long coalescedLastMinute = 0L;
+    private static volatile long minuteStart = 0L;
+
+    static void recordCoalescedHeal() {
+        coalescedHeals.incrementAndGet();
+        rollMinute(System.currentTimeMillis());
+        coalescedThisMinute.incrementAndGet();
+    }
+
+    public static long getCoalescedHeals() {
+        return coalescedHeals.get();
+    }
+
+    /**
+     * Gets the health stat writes saved by heal coalescing during the last full minute.
+     */
+    public static long getCoalescedHealsPerMinute() {
+        rollMinute(System.currentTimeMillis());
+        return coalescedLastMinute;
+    }
+
+    private static void rollMinute(long now) {
+        if (now - minuteStart < 60_000L) {
+            return;
+        }
+        synchronized (RegenMetrics.class) {
+            long elapsed = now - minuteStart;
+            if (elapsed < 60_000L) {
+                return;
+            }
+            long count = coalescedThisMinute.getAndSet(0L);
+            // Nothing was counted in the last minute if more than one has passed
+            coalescedLastMinute = elapsed < 120_000L ? count : 0L;
+            minuteStart = now;
+        }
+    }
+
+    static void recordEviction() {
+        evictions.incrementAndGet();
+    }
+
+    public static long getEvictions() {
+        return evictions.get();
+    }
+
+    static void recordPausedInterval() {
+        pausedIntervals.incrementAndGet();
+    }
+
+    public static long getPausedIntervals() {
+        return pausedIntervals.get();
+    }
+
+    static void recordBudgetPass(boolean overrun, int deferred) {
+        if (overrun) {
+            budgetOverruns.incrementAndGet();
+        }
+        if (deferred > 0) {
+            deferredTicks.addAndGet(deferred);
+        }
+    }
+
+    public static long getBudgetOverruns() {
+        return budgetOverruns.get();
+    }
+
+    public static long getDeferredTicks() {
+        return deferredTicks.get();
+    }
+
+    /**
+     * Resizes the NPC LOD counters when the bucket configuration changes.
+     */
+    static void ensureNpcLodBuckets(int bucketCount) {
+        if (npcLodUpdates.length() != bucketCount) {
+            synchronized (RegenMetrics.class) {
+                if (npcLodUpdates.length() != bucketCount) {
+                    npcLodPopulation = new AtomicLongArray(bucketCount);
+                    npcLodUpdates = new AtomicLongArray(bucketCount);
+                }
+            }
+        }
+    }
+
+    static void recordNpcLodUpdate(int bucket) {
+        AtomicLongArray updates = npcLodUpdates;
+        if (bucket < updates.length()) {
+            updates.incrementAndGet(bucket);
+        }
+    }
+
+    static void setNpcLodPopulation(long[] counts) {
+        AtomicLongArray population = npcLodPopulation;
+        for (int i = 0; i < counts.length && i < population.length(); i++) {
+            population.set(i, counts[i]);
+        }
+    }
+
+    public static int getNpcLodBucketCount() {
+        return npcLodUpdates.length();
+    }
+
+    public static long getNpcLodPopulation(int bucket) {
+        return npcLodPopulation.get(bucket);
+    }
+
+    public static long getNpcLodUpdates(int bucket) {
+        return npcLodUpdates.get(bucket);
+    }
+}
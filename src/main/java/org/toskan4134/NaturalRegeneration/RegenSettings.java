@@ -0,0 +1,409 @@
+package org.toskan4134.NaturalRegeneration;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.modules.entitystats.EntityStatMap;
+import com.hypixel.hytale.server.core.modules.entitystats.EntityStatValue;
+import com.hypixel.hytale.server.core.modules.entitystats.asset.EntityStatType;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Immutable snapshot of the regeneration settings, compiled from a {@link RegenConfig}.
+ * The tick system reads a single snapshot per tick, so a reload or a command
+ * never exposes a half-applied configuration to the world thread.
+ */
+public final class RegenSettings {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private final boolean enabled;
+    private final long delayMs;
+    private final float amountHP;
+    private final float intervalSeconds;
+
+    // Health cap, parsed once instead of on every heal
+    private final boolean hasHealthCap;
+    private final boolean healthCapPercentage;
+    private final float healthCapValue;
+    private final String healthCap;
+
+    // Per-source delay overrides
+    private final DamageRules damageRules;
+    // Longest delay any damage event can get, default or rule
+    private final long maxDamageDelayMs;
+
+    // Other regenerating stats, as parallel arrays indexed by stat slot
+    private final String[] statNames;
+    private final long[] statDelaysMs;
+    private final float[] statAmounts;
+    private final float[] statIntervals;
+    private final float[] statCapValues; // NaN when uncapped
+    private final boolean[] statCapPercentages;
+
+    // Stat indices resolved from the asset map on first use
+    private volatile int[] statIndices;
+
+    // Pause conditions: stat names, levels (NaN when unused) and their resolved indices
+    private final String[] pauseNames;
+    private final float[] pauseBelow;
+    private final boolean[] pauseBelowPercentages;
+    private final float[] pauseAbove;
+    private final boolean[] pauseAbovePercentages;
+    private volatile int[] pauseIndices;
+
+    // NPC regeneration level-of-detail buckets
+    private final boolean npcRegeneration;
+    private final boolean npcLazy;
+    private final long npcLazySweepMs;
+    private final float[] lodMaxDistancesSq;
+    private final long[] lodIntervalsMs;
+
+    // Time budget of one regeneration pass, 0 when unlimited
+    private final long tickBudgetNanos;
+
+    // Load-adaptive cadence: smoothed tick time at which the interval starts stretching, and the limit
+    private final boolean adaptiveCadence;
+    private final float adaptiveTickMs;
+    private final float adaptiveMaxStretch;
+
+    // Regeneration zones from the config (API zones are kept by RegenZones)
+    private final RegenZones.Zone[] zones;
+    private final float zoneCellSize;
+
+    // Heals below this are kept server-side until they add up, 0 when disabled
+    private final float healCoalesceHP;
+
+    // Telemetry export
+    private final boolean telemetry;
+    private final boolean telemetryCsv;
+    private final long telemetryWindowMs;
+    private final long telemetryMaxFileBytes;
+    private final int telemetryMaxFiles;
+
+    private RegenSettings(@Nonnull RegenConfig config) {
+        this.enabled = config.isEnabled();
+        this.delayMs = config.getDelayMs();
+        this.amountHP = config.getAmountHP();
+        this.intervalSeconds = config.getIntervalSeconds();
+        this.healthCap = config.getHealthCap();
+        this.damageRules = DamageRules.compile(config);
+        this.maxDamageDelayMs = damageRules.getMaxDelayMs(delayMs);
+
+        boolean percentage = config.isHealthCapPercentage();
+        float capValue = Float.MAX_VALUE;
+        boolean capped = false;
+        if (config.hasHealthCap()) {
+            try {
+                String raw = percentage ? healthCap.substring(0, healthCap.length() - 1) : healthCap;
+                capValue = Float.parseFloat(raw.trim());
+                capped = true;
+            } catch (NumberFormatException e) {
+                // Invalid format, no cap
+            }
+        }
+        this.hasHealthCap = capped;
+        this.healthCapPercentage = capped && percentage;
+        this.healthCapValue = capValue;
+
+        RegenConfig.StatRule[] rules = config.getStatRules();
+        int count = rules.length;
+        this.statNames = new String[count];
+        this.statDelaysMs = new long[count];
+        this.statAmounts = new float[count];
+        this.statIntervals = new float[count];
+        this.statCapValues = new float[count];
+        this.statCapPercentages = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            RegenConfig.StatRule rule = rules[i];
+            statNames[i] = rule.getStat();
+            statDelaysMs[i] = rule.getDelayMs();
+            statAmounts[i] = rule.getAmount();
+            statIntervals[i] = rule.getIntervalSeconds();
+            statCapValues[i] = rule.getCap().isEmpty() ? Float.NaN : RegenConfig.parseCapValue(rule.getCap());
+            statCapPercentages[i] = rule.getCap().endsWith("%");
+        }
+
+        RegenConfig.PauseCondition[] conditions = config.getPauseConditions();
+        this.pauseNames = new String[conditions.length];
+        this.pauseBelow = new float[conditions.length];
+        this.pauseBelowPercentages = new boolean[conditions.length];
+        this.pauseAbove = new float[conditions.length];
+        this.pauseAbovePercentages = new boolean[conditions.length];
+        for (int i = 0; i < conditions.length; i++) {
+            RegenConfig.PauseCondition condition = conditions[i];
+            pauseNames[i] = condition.getStat();
+            pauseBelow[i] = condition.getBelow().isEmpty() ? Float.NaN : RegenConfig.parseCapValue(condition.getBelow());
+            pauseBelowPercentages[i] = condition.getBelow().endsWith("%");
+            pauseAbove[i] = condition.getAbove().isEmpty() ? Float.NaN : RegenConfig.parseCapValue(condition.getAbove());
+            pauseAbovePercentages[i] = condition.getAbove().endsWith("%");
+        }
+
+        RegenConfig.LodBucket[] buckets = config.getNpcLodBuckets();
+        this.npcRegeneration = config.isNpcRegeneration() && buckets.length > 0;
+        this.npcLazy = config.isNpcLazy();
+        this.npcLazySweepMs = (long) (config.getNpcLazySweepSeconds() * 1000);
+        this.tickBudgetNanos = Math.max(0, config.getTickBudgetMicros()) * 1000L;
+        this.adaptiveCadence = config.isAdaptiveCadence();
+        this.adaptiveTickMs = Math.max(1.0f, config.getAdaptiveTickMs());
+        this.adaptiveMaxStretch = Math.max(1.0f, config.getAdaptiveMaxStretch());
+        RegenConfig.ZoneRule[] zoneRules = config.getZones();
+        this.zones = new RegenZones.Zone[zoneRules.length];
+        for (int i = 0; i < zoneRules.length; i++) {
+            zones[i] = zoneRules[i].toZone();
+        }
+        this.zoneCellSize = Math.max(1.0f, config.getZoneCellSize());
+        this.healCoalesceHP = Math.max(0.0f, config.getHealCoalesceHP());
+        this.telemetry = config.isTelemetry();
+        this.telemetryCsv = config.isTelemetryCsv();
+        this.telemetryWindowMs = (long) (Math.max(1.0f, config.getTelemetryWindowSeconds()) * 1000);
+        this.telemetryMaxFileBytes = Math.max(1, config.getTelemetryMaxFileMB()) * 1024L * 1024L;
+        this.telemetryMaxFiles = Math.max(1, config.getTelemetryMaxFiles());
+        this.lodMaxDistancesSq = new float[buckets.length];
+        this.lodIntervalsMs = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            lodMaxDistancesSq[i] = buckets[i].getMaxDistance() * buckets[i].getMaxDistance();
+            lodIntervalsMs[i] = (long) (buckets[i].getIntervalSeconds() * 1000);
+        }
+    }
+
+    /**
+     * Compiles a snapshot of the given configuration.
+     *
+     * @param config the configuration to compile
+     * @return an immutable settings snapshot
+     */
+    @Nonnull
+    public static RegenSettings compile(@Nonnull RegenConfig config) {
+        return new RegenSettings(config);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getDelayMs() {
+        return delayMs;
+    }
+
+    public float getAmountHP() {
+        return amountHP;
+    }
+
+    public float getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    public boolean hasHealthCap() {
+        return hasHealthCap;
+    }
+
+    public String getHealthCap() {
+        return healthCap;
+    }
+
+    @Nonnull
+    public DamageRules getDamageRules() {
+        return damageRules;
+    }
+
+    public long getMaxDamageDelayMs() {
+        return maxDamageDelayMs;
+    }
+
+    /**
+     * Gets the number of configured stats besides health.
+     */
+    public int getStatCount() {
+        return statNames.length;
+    }
+
+    public String getStatName(int slot) {
+        return statNames[slot];
+    }
+
+    public long getStatDelayMs(int slot) {
+        return statDelaysMs[slot];
+    }
+
+    public float getStatAmount(int slot) {
+        return statAmounts[slot];
+    }
+
+    public float getStatInterval(int slot) {
+        return statIntervals[slot];
+    }
+
+    /**
+     * Gets the effective cap of a stat for a given max value, never above the max.
+     */
+    public float getEffectiveStatCap(int slot, float maxValue) {
+        float cap = statCapValues[slot];
+        if (Float.isNaN(cap)) {
+            return maxValue;
+        }
+        return Math.min(statCapPercentages[slot] ? (cap / 100.0f) * maxValue : cap, maxValue);
+    }
+
+    /**
+     * Gets the entity stat index of every configured stat, resolved once per snapshot.
+     * Unknown stats resolve to Integer.MIN_VALUE and are skipped.
+     */
+    @Nonnull
+    public int[] getStatIndices() {
+        int[] indices = statIndices;
+        if (indices == null) {
+            indices = new int[statNames.length];
+            for (int i = 0; i < statNames.length; i++) {
+                indices[i] = EntityStatType.getAssetMap().getIndex(statNames[i]);
+                if (indices[i] == Integer.MIN_VALUE) {
+                    LOGGER.atWarning().log("Unknown stat in StatRules: " + statNames[i]);
+                }
+            }
+            statIndices = indices;
+        }
+        return indices;
+    }
+
+    public boolean hasPauseConditions() {
+        return pauseNames.length != 0;
+    }
+
+    /**
+     * Checks the pause conditions against stats of the entity's stat map.
+     * Stat indices are resolved once per snapshot; the check itself only compares values.
+     *
+     * @return true if passive health regeneration is paused
+     */
+    public boolean isRegenPaused(@Nonnull EntityStatMap statMap) {
+        int[] indices = pauseIndices;
+        if (indices == null) {
+            indices = new int[pauseNames.length];
+            for (int i = 0; i < pauseNames.length; i++) {
+                indices[i] = EntityStatType.getAssetMap().getIndex(pauseNames[i]);
+                if (indices[i] == Integer.MIN_VALUE) {
+                    LOGGER.atWarning().log("Unknown stat in PauseConditions: " + pauseNames[i]);
+                }
+            }
+            pauseIndices = indices;
+        }
+        for (int i = 0; i < indices.length; i++) {
+            if (indices[i] == Integer.MIN_VALUE) {
+                continue;
+            }
+            EntityStatValue value = statMap.get(indices[i]);
+            if (value == null) {
+                continue;
+            }
+            float current = value.get();
+            float below = pauseBelow[i];
+            if (!Float.isNaN(below) && current < (pauseBelowPercentages[i] ? below / 100.0f * value.getMax() : below)) {
+                return true;
+            }
+            float above = pauseAbove[i];
+            if (!Float.isNaN(above) && current > (pauseAbovePercentages[i] ? above / 100.0f * value.getMax() : above)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isNpcRegeneration() {
+        return npcRegeneration;
+    }
+
+    public boolean isNpcLazy() {
+        return npcLazy;
+    }
+
+    public long getNpcLazySweepMs() {
+        return npcLazySweepMs;
+    }
+
+    public long getTickBudgetNanos() {
+        return tickBudgetNanos;
+    }
+
+    public boolean isAdaptiveCadence() {
+        return adaptiveCadence;
+    }
+
+    public float getAdaptiveTickMs() {
+        return adaptiveTickMs;
+    }
+
+    public float getAdaptiveMaxStretch() {
+        return adaptiveMaxStretch;
+    }
+
+    @Nonnull
+    public RegenZones.Zone[] getZones() {
+        return zones.clone();
+    }
+
+    public float getZoneCellSize() {
+        return zoneCellSize;
+    }
+
+    public float getHealCoalesceHP() {
+        return healCoalesceHP;
+    }
+
+    public boolean isTelemetry() {
+        return telemetry;
+    }
+
+    public boolean isTelemetryCsv() {
+        return telemetryCsv;
+    }
+
+    public long getTelemetryWindowMs() {
+        return telemetryWindowMs;
+    }
+
+    public long getTelemetryMaxFileBytes() {
+        return telemetryMaxFileBytes;
+    }
+
+    public int getTelemetryMaxFiles() {
+        return telemetryMaxFiles;
+    }
+
+    public int getLodBucketCount() {
+        return lodIntervalsMs.length;
+    }
+
+    /**
+     * Gets the LOD bucket for a squared distance to the nearest player.
+     */
+    public int getLodBucket(double distanceSq) {
+        int last = lodMaxDistancesSq.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (distanceSq <= lodMaxDistancesSq[i]) {
+                return i;
+            }
+        }
+        return last;
+    }
+
+    public float getLodMaxDistance(int bucket) {
+        return (float) Math.sqrt(lodMaxDistancesSq[bucket]);
+    }
+
+    public long getLodIntervalMs(int bucket) {
+        return lodIntervalsMs[bucket];
+    }
+
+    /**
+     * Gets the effective health cap for a given max health, never above max health.
+     *
+     * @param maxHealth the entity's maximum health
+     * @return the effective health cap
+     */
+    public float getEffectiveHealthCap(float maxHealth) {
+        if (!hasHealthCap) {
+            return maxHealth;
+        }
+        float cap = healthCapPercentage ? (healthCapValue / 100.0f) * maxHealth : healthCapValue;
+        return Math.min(cap, maxHealth);
+    }
+}
@@ -0,0 +1,75 @@
+package org.toskan4134.NaturalRegeneration;
+
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.UUID;
+
+/**
+ * Per-player state kept by the regeneration tick system.
+ * One instance per player, keyed by UUID, so a tick does a single map lookup
+ * and the state follows the player across worlds. It is only changed by the
+ * thread of the world that ticks the player (its owner).
+ */
+final class RegenState {
+
+    // The player this state belongs to
+    @Nonnull
+    final UUID uuid;
+    @Nullable
+    final String username;
+
+    // Time accumulated towards the next regeneration interval
+    float timeAccumulator;
+
+    // The damage delay blocked the last due health interval
+    boolean damageBlocked;
+    // Pause conditions blocked the last due health interval
+    boolean paused;
+
+    // Heal coalesced but not written to the health stat yet
+    float pendingHeal;
+
+    // Regeneration zone multiplier, and the zone grid cell it was resolved in
+    float zoneMultiplier = 1.0f;
+    @Nullable
+    RegenZones.Index zoneIndex;
+    long zoneCellKey;
+    @Nullable
+    RegenZones.Cell zoneCell;
+
+    // Accumulators of the other configured stats, by stat slot
+    @Nullable
+    float[] statAccumulators;
+
+    // World that last ticked the player; only its thread changes this state
+    @Nullable
+    volatile Store<EntityStore> owner;
+
+    // Ticks so far, and at the owner's last sweep (unchanged since then: not ticked anymore)
+    int ticks;
+    int ticksAtSweep;
+
+    // Active timed heal sources, null when there are none
+    @Nullable
+    HealPipeline.ActiveSources healSources;
+
+    // Time skipped while deferred by the tick budget, added to the next processed tick
+    float deferredDt;
+    // Budget lap in which this entity was last processed
+    long budgetLap;
+
+    // Trace for which this entity's initial state was recorded
+    int traceGeneration;
+
+    // Damage state already handed to the snapshot
+    long persistedDamageTime;
+    long persistedBlockedUntil;
+
+    RegenState(@Nonnull UUID uuid, @Nullable String username) {
+        this.uuid = uuid;
+        this.username = username;
+    }
+}
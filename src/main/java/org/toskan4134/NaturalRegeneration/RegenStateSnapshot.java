@@ -0,0 +1,326 @@
+package org.toskan4134.NaturalRegeneration;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists per-player damage state across restarts, so relogging or a restart
+ * does not skip the regeneration delay.
+ *
+ * The file is a header followed by fixed-size records:
+ *   uuid (16 bytes) | last damage time ms (8 bytes) | regen blocked until ms (8 bytes)
+ *   | time accumulator (4 bytes)
+ *
+ * Records are written in place, so a flush only writes players whose state
+ * changed. The file is not read at startup; the slot index is built on the
+ * first player join and all I/O happens on a single background thread.
+ */
+public class RegenStateSnapshot {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private static final int MAGIC = 0x4E525331; // "NRS1"
+    private static final int HEADER_BYTES = 4;
+    private static final int RECORD_BYTES = 36;
+    private static final int READ_BUFFER_BYTES = RECORD_BYTES * 2048;
+
+    private static final long FLUSH_INTERVAL_SECONDS = 30;
+
+    private final Path file;
+
+    // Records staged by the tick system, written on the next flush
+    private final Map<UUID, Record> staged = new ConcurrentHashMap<>();
+
+    // Records loaded for joining players, applied by the tick system
+    private final Map<UUID, Record> restores = new ConcurrentHashMap<>();
+
+    @Nullable
+    private ScheduledExecutorService ioExecutor;
+
+    // Only accessed from the I/O thread
+    @Nullable
+    private FileChannel channel;
+    @Nullable
+    private Map<UUID, Integer> slots;
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private int recordCount;
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_BYTES);
+
+    public RegenStateSnapshot(@Nonnull Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Starts the background writer. Does not touch the file.
+     */
+    public void start() {
+        ioExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "NaturalRegeneration-StateWriter");
+            t.setDaemon(true);
+            return t;
+        });
+        ioExecutor.scheduleWithFixedDelay(this::flushSafely,
+                FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Flushes pending records and closes the file.
+     */
+    public void close() {
+        if (ioExecutor == null) {
+            return;
+        }
+        ioExecutor.shutdown();
+        try {
+            ioExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ioExecutor = null;
+
+        // The executor is gone, so it is safe to finish on this thread
+        flushSafely();
+        if (channel != null) {
+            try {
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.atWarning().log("Failed to close regen state file: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Stages a player's state to be written on the next flush.
+     * Called from the tick thread; only allocates a small record.
+     */
+    public void stage(@Nonnull UUID uuid, long lastDamageTime, long regenBlockedUntil, float timeAccumulator) {
+        staged.put(uuid, new Record(lastDamageTime, regenBlockedUntil, timeAccumulator));
+    }
+
+    /**
+     * Loads a player's saved state in the background, including state staged
+     * but not flushed yet (a relog within the flush interval).
+     * The result becomes available through {@link #takeRestore(UUID)}.
+     */
+    public void requestRestore(@Nonnull UUID uuid) {
+        ScheduledExecutorService executor = ioExecutor;
+        if (executor == null) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                Record record = read(uuid);
+                Record pending = staged.get(uuid);
+                if (pending != null) {
+                    record = record != null ? Record.merge(record, pending) : pending;
+                }
+                if (record != null && !record.isExpired(System.currentTimeMillis())) {
+                    restores.merge(uuid, record, Record::merge);
+                }
+            } catch (IOException e) {
+                LOGGER.atWarning().log("Failed to read regen state for " + uuid + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Queues damage state obtained elsewhere (a {@link DamageStateStore}) to be
+     * applied like a saved one. Merged with any state loaded from the file.
+     */
+    void offerRestore(@Nonnull UUID uuid, long lastDamageTime, long regenBlockedUntil) {
+        restores.merge(uuid, new Record(lastDamageTime, regenBlockedUntil, 0f), Record::merge);
+    }
+
+    /**
+     * Checks if any loaded state is waiting to be applied.
+     */
+    public boolean hasPendingRestores() {
+        return !restores.isEmpty();
+    }
+
+    /**
+     * Takes the loaded state for a player, if any.
+     */
+    @Nullable
+    public Record takeRestore(@Nonnull UUID uuid) {
+        return restores.remove(uuid);
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (IOException e) {
+            LOGGER.atWarning().log("Failed to write regen state: " + e.getMessage());
+        }
+    }
+
+    private void flush() throws IOException {
+        if (staged.isEmpty()) {
+            return;
+        }
+        ensureLoaded();
+
+        int written = 0;
+        Iterator<Map.Entry<UUID, Record>> iterator = staged.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, Record> entry = iterator.next();
+            UUID uuid = entry.getKey();
+            Record record = entry.getValue();
+            // Only remove if the tick thread did not stage a newer record meanwhile
+            staged.remove(uuid, record);
+
+            Integer slot = slots.get(uuid);
+            if (slot == null) {
+                slot = freeSlots.isEmpty() ? recordCount++ : freeSlots.poll();
+                slots.put(uuid, slot);
+            }
+
+            recordBuffer.clear();
+            recordBuffer.putLong(uuid.getMostSignificantBits());
+            recordBuffer.putLong(uuid.getLeastSignificantBits());
+            recordBuffer.putLong(record.lastDamageTime);
+            recordBuffer.putLong(record.regenBlockedUntil);
+            recordBuffer.putFloat(record.timeAccumulator);
+            recordBuffer.flip();
+            long position = HEADER_BYTES + (long) slot * RECORD_BYTES;
+            while (recordBuffer.hasRemaining()) {
+                position += channel.write(recordBuffer, position);
+            }
+            written++;
+        }
+
+        LOGGER.atFine().log("Regen state flush: " + written + " records written, " + slots.size() + " tracked");
+    }
+
+    @Nullable
+    private Record read(@Nonnull UUID uuid) throws IOException {
+        ensureLoaded();
+        Integer slot = slots.get(uuid);
+        if (slot == null) {
+            return null;
+        }
+        recordBuffer.clear();
+        long position = HEADER_BYTES + (long) slot * RECORD_BYTES + 16;
+        recordBuffer.limit(RECORD_BYTES - 16);
+        while (recordBuffer.hasRemaining()) {
+            if (channel.read(recordBuffer, position + recordBuffer.position()) < 0) {
+                return null;
+            }
+        }
+        recordBuffer.flip();
+        return new Record(recordBuffer.getLong(), recordBuffer.getLong(), recordBuffer.getFloat());
+    }
+
+    /**
+     * Opens the file and builds the UUID to slot index in one sequential pass.
+     * Records older than the damage tracker retention are recycled.
+     */
+    private void ensureLoaded() throws IOException {
+        if (slots != null) {
+            return;
+        }
+        long start = System.nanoTime();
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        slots = new HashMap<>();
+        freeSlots.clear();
+        recordCount = 0;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+            // Missing, empty or unknown file: start over
+            channel.truncate(0);
+            header.clear();
+            header.putInt(MAGIC).flip();
+            channel.write(header, 0);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        int records = (int) ((channel.size() - HEADER_BYTES) / RECORD_BYTES);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+        long position = HEADER_BYTES;
+        int index = 0;
+        while (index < records) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            position += read;
+            buffer.flip();
+            while (buffer.remaining() >= RECORD_BYTES && index < records) {
+                UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+                Record record = new Record(buffer.getLong(), buffer.getLong(), buffer.getFloat());
+                if (record.isExpired(now)) {
+                    freeSlots.add(index);
+                } else {
+                    slots.put(uuid, index);
+                }
+                index++;
+            }
+            // Re-read a partial record on the next pass
+            position -= buffer.remaining();
+        }
+        recordCount = records;
+
+        LOGGER.atInfo().log("Loaded regen state index: " + slots.size() + " active of " + records + " records in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Saved state of one player.
+     */
+    public static final class Record {
+        final long lastDamageTime;
+        final long regenBlockedUntil;
+        final float timeAccumulator;
+
+        Record(long lastDamageTime, long regenBlockedUntil, float timeAccumulator) {
+            this.lastDamageTime = lastDamageTime;
+            this.regenBlockedUntil = regenBlockedUntil;
+            this.timeAccumulator = timeAccumulator;
+        }
+
+        boolean isExpired(long now) {
+            return now - lastDamageTime > DamageTracker.MAX_RECORD_AGE_MS && now >= regenBlockedUntil;
+        }
+
+        static Record merge(Record a, Record b) {
+            return new Record(Math.max(a.lastDamageTime, b.lastDamageTime),
+                    Math.max(a.regenBlockedUntil, b.regenBlockedUntil),
+                    Math.max(a.timeAccumulator, b.timeAccumulator));
+        }
+
+        public long getLastDamageTime() {
+            return lastDamageTime;
+        }
+
+        public long getRegenBlockedUntil() {
+            return regenBlockedUntil;
+        }
+
+        public float getTimeAccumulator() {
+            return timeAccumulator;
+        }
+    }
+}
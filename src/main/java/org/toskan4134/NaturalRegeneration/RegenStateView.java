@@ -0,0 +1,63 @@
+package org.toskan4134.NaturalRegeneration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.UUID;
+
+/**
+ * Read-only copy of one player's regeneration state, taken between two ticks.
+ * Used by /nr inspect so the report can be built off the world thread.
+ */
+public final class RegenStateView {
+
+    private final UUID uuid;
+    @Nullable
+    private final String username;
+    private final long lastDamageTime;
+    private final long regenBlockedUntil;
+    private final float timeAccumulator;
+    private final int healSources;
+
+    RegenStateView(@Nonnull UUID uuid, @Nullable String username, long lastDamageTime,
+                   long regenBlockedUntil, float timeAccumulator, int healSources) {
+        this.uuid = uuid;
+        this.username = username;
+        this.lastDamageTime = lastDamageTime;
+        this.regenBlockedUntil = regenBlockedUntil;
+        this.timeAccumulator = timeAccumulator;
+        this.healSources = healSources;
+    }
+
+    @Nonnull
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    @Nullable
+    public String getUsername() {
+        return username;
+    }
+
+    public long getLastDamageTime() {
+        return lastDamageTime;
+    }
+
+    public long getRegenBlockedUntil() {
+        return regenBlockedUntil;
+    }
+
+    public float getTimeAccumulator() {
+        return timeAccumulator;
+    }
+
+    public int getHealSources() {
+        return healSources;
+    }
+
+    /**
+     * Checks if the player can regenerate at the given time.
+     */
+    public boolean canRegenerate(long now) {
+        return now >= regenBlockedUntil;
+    }
+}
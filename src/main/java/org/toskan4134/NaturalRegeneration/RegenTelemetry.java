@@ -0,0 +1,608 @@
+package org.toskan4134.NaturalRegeneration;
+
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Opt-in per-player regeneration telemetry for balancing.
+ *
+ * Each world adds heals and damage to per-player aggregates held in its own
+ * preallocated arrays (a {@link Shard}), locked only by that world's thread and
+ * the hand-off to the writer, so worlds never wait on each other. At the end of
+ * every window a world swaps its arrays with a spare set and a background thread
+ * writes one row per active player (HP, HP healed, damage taken, time from the
+ * last hit to full health) to rotating JSON-lines or CSV files. If the writer is
+ * still busy, the window is extended instead of allocating. When disabled,
+ * callers skip it with one volatile read.
+ */
+public class RegenTelemetry {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    public static final String FORMAT_JSON_LINES = "JsonLines";
+    public static final String FORMAT_CSV = "Csv";
+
+    // Players tracked per world
+    private static final int MAX_PLAYERS = 2048;
+    private static final int TABLE_SIZE = MAX_PLAYERS * 2; // Power of two, at most half full
+
+    // One call in 64 is timed to estimate the cost on the tick thread
+    private static final int COST_SAMPLE_MASK = 63;
+
+    // Worlds not ticked for this long (unloaded) are written out and forgotten
+    private static final long STALE_WORLD_MS = 60_000L;
+
+    private static final String CSV_HEADER = "time,uuid,name,hp,max_hp,healed,heals,damage,hits,time_to_full_ms";
+
+    private final Path directory;
+
+    private volatile boolean enabled;
+    // Incremented by every start, so each world resets its aggregates on its next pass
+    private volatile int generation;
+
+    private final Map<Store<EntityStore>, Shard> shards = new ConcurrentHashMap<>();
+
+    // Writes and rotates the files; its thread only starts once telemetry is enabled
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "NaturalRegeneration-Telemetry");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Settings of the current recording
+    private volatile long windowMs;
+    private volatile boolean csv;
+    private volatile long maxFileBytes;
+    private volatile int maxFiles;
+
+    // Only accessed from the writer thread
+    @Nullable
+    private Writer out;
+    private long fileBytes;
+    // Written by the writer thread, read by /nr status
+    @Nullable
+    private volatile Path file;
+
+    public RegenTelemetry(@Nonnull Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Checks if telemetry is being recorded. Callers check this before recording.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the aggregates of a world's players.
+     */
+    @Nonnull
+    public Shard get(@Nonnull Store<EntityStore> store) {
+        Shard shard = shards.get(store);
+        if (shard == null) {
+            shard = shards.computeIfAbsent(store, k -> new Shard());
+        }
+        return shard;
+    }
+
+    /**
+     * Applies the settings and ends a world's window when it is due.
+     * Called once per pass from each world's thread.
+     */
+    public void tick(@Nonnull Store<EntityStore> store, @Nonnull RegenSettings cfg, long now) {
+        if (enabled && cfg.isTelemetryCsv() != csv) {
+            stop(); // Format changed, start a new file
+        }
+        if (cfg.isTelemetry() != enabled) {
+            if (cfg.isTelemetry()) {
+                start(cfg);
+            } else {
+                stop();
+            }
+        }
+        if (!enabled) {
+            return;
+        }
+        windowMs = cfg.getTelemetryWindowMs();
+        maxFileBytes = cfg.getTelemetryMaxFileBytes();
+        maxFiles = cfg.getTelemetryMaxFiles();
+        if (get(store).tick(now)) {
+            removeStale(now);
+        }
+    }
+
+    /**
+     * Gets the file being written, or null when disabled.
+     */
+    @Nullable
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Gets the estimated time spent on the tick thread per telemetry call.
+     */
+    public long getAverageCallNanos() {
+        long sampledCalls = 0L;
+        long sampledNanos = 0L;
+        for (Shard shard : shards.values()) {
+            synchronized (shard) {
+                sampledCalls += shard.sampledCalls;
+                sampledNanos += shard.sampledNanos;
+            }
+        }
+        return sampledCalls > 0 ? sampledNanos / sampledCalls : 0L;
+    }
+
+    /**
+     * Gets the number of telemetry calls made on the tick threads.
+     */
+    public long getCallCount() {
+        long calls = 0L;
+        for (Shard shard : shards.values()) {
+            synchronized (shard) {
+                calls += shard.calls;
+            }
+        }
+        return calls;
+    }
+
+    /**
+     * Gets how many players could not be tracked because all of their world's slots were in use.
+     */
+    public long getDroppedPlayers() {
+        long dropped = 0L;
+        for (Shard shard : shards.values()) {
+            synchronized (shard) {
+                dropped += shard.droppedPlayers;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Stops recording. Every world's current window is written and the file closed in the background.
+     */
+    public synchronized void stop() {
+        if (!enabled) {
+            return;
+        }
+        enabled = false;
+        boolean csvRows = csv;
+        for (Shard shard : shards.values()) {
+            shard.flush(csvRows);
+        }
+        writer.execute(this::closeFile);
+        LOGGER.atInfo().log("Regeneration telemetry stopped");
+    }
+
+    /**
+     * Stops recording and waits for the writer to finish.
+     */
+    public void close() {
+        stop();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void start(RegenSettings cfg) {
+        if (enabled) {
+            return;
+        }
+        csv = cfg.isTelemetryCsv();
+        windowMs = cfg.getTelemetryWindowMs();
+        maxFileBytes = cfg.getTelemetryMaxFileBytes();
+        maxFiles = cfg.getTelemetryMaxFiles();
+        generation++;
+        enabled = true;
+        LOGGER.atInfo().log("Regeneration telemetry enabled (" + (csv ? FORMAT_CSV : FORMAT_JSON_LINES)
+                + ", " + windowMs / 1000 + " sec windows) in " + directory);
+    }
+
+    /**
+     * Writes out and forgets the worlds that stopped ticking.
+     */
+    private synchronized void removeStale(long now) {
+        boolean csvRows = csv;
+        shards.values().removeIf(shard -> {
+            if (now - shard.lastTickTime < STALE_WORLD_MS) {
+                return false;
+            }
+            shard.flush(csvRows);
+            return true;
+        });
+    }
+
+    private static int mix(int hash) {
+        return (hash * 0x9E3779B9 >>> 16) & (TABLE_SIZE - 1);
+    }
+
+    /**
+     * Aggregates of one world's players. Only the world's own thread records into
+     * it; the lock is only shared with the hand-off of windows to the writer.
+     */
+    public final class Shard {
+        // Player UUID -> slot, open addressing (null = empty)
+        private final UUID[] tableKeys = new UUID[TABLE_SIZE];
+        private final int[] tableSlots = new int[TABLE_SIZE];
+        private Window current = new Window();
+        @Nullable
+        private Window spare = new Window();
+        private long windowStart;
+        private int shardGeneration;
+        private volatile long lastTickTime = System.currentTimeMillis();
+
+        // Cost estimate and players beyond MAX_PLAYERS
+        private long calls;
+        private long sampledCalls;
+        private long sampledNanos;
+        private long droppedPlayers;
+        private boolean droppedThisWindow;
+
+        private Shard() {
+        }
+
+        /**
+         * Marks a player as present this window, creating its slot if needed.
+         */
+        public synchronized void bind(@Nonnull UUID uuid, @Nullable String username) {
+            long start = startCall();
+            int slot = slotOf(uuid);
+            if (slot < 0) {
+                slot = addSlot(uuid, username);
+            }
+            if (slot >= 0) {
+                current.seen[slot] = true;
+            }
+            endCall(start);
+        }
+
+        /**
+         * Adds a heal to a player's aggregates.
+         *
+         * @param uuid the player
+         * @param applied health added
+         * @param health health after the heal
+         * @param maxHealth maximum health
+         * @param reachedCap true if this heal brought the player to the health cap
+         * @param sinceDamageMs time since the player's last damage
+         */
+        public synchronized void recordHeal(@Nonnull UUID uuid, float applied, float health, float maxHealth,
+                                            boolean reachedCap, long sinceDamageMs) {
+            long start = startCall();
+            int slot = slotOf(uuid);
+            if (slot >= 0) {
+                Window window = current;
+                window.healed[slot] += applied;
+                window.heals[slot]++;
+                window.health[slot] = health;
+                window.maxHealth[slot] = maxHealth;
+                if (reachedCap) {
+                    window.timeToFullMs[slot] = sinceDamageMs;
+                }
+            }
+            endCall(start);
+        }
+
+        /**
+         * Adds damage to a player's aggregates. Ignored for other entities (NPCs are keyed by NpcKey).
+         *
+         * @param key Player UUID or NPC key, as stored in the {@link DamageTracker}
+         * @param hitCount number of hits merged into this damage
+         */
+        public synchronized void recordDamage(@Nonnull Object key, float damageAmount, int hitCount) {
+            if (!(key instanceof UUID)) {
+                return;
+            }
+            long start = startCall();
+            int slot = slotOf((UUID) key);
+            if (slot >= 0) {
+                current.damage[slot] += damageAmount;
+                current.hits[slot] += hitCount;
+            }
+            endCall(start);
+        }
+
+        /**
+         * Starts over after telemetry was restarted, and ends the window when it is due.
+         *
+         * @return true if a window was handed to the writer
+         */
+        private synchronized boolean tick(long now) {
+            lastTickTime = now;
+            if (shardGeneration != generation) {
+                shardGeneration = generation;
+                Arrays.fill(tableKeys, null);
+                current.clear(0);
+                windowStart = now;
+                return false;
+            }
+            if (now - windowStart < windowMs || spare == null) {
+                return false; // Not due, or the writer is still busy: extend the window
+            }
+
+            // Keep the slots of players seen this window, compacted
+            Window closing = current;
+            Window next = spare;
+            spare = null;
+            Arrays.fill(tableKeys, null);
+            int count = 0;
+            for (int slot = 0; slot < closing.count; slot++) {
+                if (closing.seen[slot]) {
+                    next.uuids[count] = closing.uuids[slot];
+                    next.names[count] = closing.names[slot];
+                    next.health[count] = closing.health[slot];
+                    next.maxHealth[count] = closing.maxHealth[slot];
+                    insert(closing.uuids[slot], count);
+                    count++;
+                }
+            }
+            next.clear(count);
+            current = next;
+            long start = windowStart;
+            windowStart = now;
+            droppedThisWindow = false;
+
+            boolean csvRows = csv;
+            writer.execute(() -> {
+                write(closing, start, csvRows);
+                synchronized (this) {
+                    spare = closing;
+                }
+            });
+            return true;
+        }
+
+        /**
+         * Hands the current window to the writer, when telemetry stops or the world is gone.
+         */
+        private synchronized void flush(boolean csvRows) {
+            Window closing = current;
+            current = spare != null ? spare : new Window();
+            spare = null;
+            current.clear(0);
+            Arrays.fill(tableKeys, null);
+            long start = windowStart;
+            writer.execute(() -> {
+                write(closing, start, csvRows);
+                synchronized (this) {
+                    spare = closing;
+                }
+            });
+        }
+
+        private int slotOf(UUID uuid) {
+            int i = mix(uuid.hashCode());
+            while (true) {
+                UUID k = tableKeys[i];
+                if (k == null) {
+                    return -1;
+                }
+                if (k.equals(uuid)) {
+                    return tableSlots[i];
+                }
+                i = (i + 1) & (TABLE_SIZE - 1);
+            }
+        }
+
+        private int addSlot(UUID uuid, @Nullable String username) {
+            Window window = current;
+            if (window.count == MAX_PLAYERS) {
+                droppedPlayers++;
+                if (!droppedThisWindow) {
+                    droppedThisWindow = true;
+                    LOGGER.atWarning().log("Telemetry is tracking " + MAX_PLAYERS
+                            + " players in one world; players beyond that are left out of this window");
+                }
+                return -1;
+            }
+            int slot = window.count++;
+            window.uuids[slot] = uuid;
+            window.names[slot] = username;
+            window.health[slot] = Float.NaN;
+            window.maxHealth[slot] = Float.NaN;
+            insert(uuid, slot);
+            return slot;
+        }
+
+        private void insert(UUID uuid, int slot) {
+            int i = mix(uuid.hashCode());
+            while (tableKeys[i] != null) {
+                i = (i + 1) & (TABLE_SIZE - 1);
+            }
+            tableKeys[i] = uuid;
+            tableSlots[i] = slot;
+        }
+
+        private long startCall() {
+            return (++calls & COST_SAMPLE_MASK) == 0 ? System.nanoTime() : 0L;
+        }
+
+        private void endCall(long start) {
+            if (start != 0L) {
+                sampledNanos += System.nanoTime() - start;
+                sampledCalls++;
+            }
+        }
+    }
+
+    // Writer thread
+
+    private void write(Window window, long start, boolean csvRows) {
+        try {
+            StringBuilder line = new StringBuilder(160);
+            for (int slot = 0; slot < window.count; slot++) {
+                if (window.heals[slot] == 0 && window.hits[slot] == 0) {
+                    continue;
+                }
+                ensureFile(csvRows);
+                line.setLength(0);
+                if (csvRows) {
+                    appendCsv(line, window, slot, start);
+                } else {
+                    appendJson(line, window, slot, start);
+                }
+                line.append('\n');
+                out.append(line);
+                fileBytes += line.length();
+            }
+            if (out != null) {
+                out.flush();
+                if (fileBytes >= maxFileBytes) {
+                    closeFile();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.atWarning().log("Failed to write regeneration telemetry: " + e.getMessage());
+            closeFile();
+        }
+    }
+
+    private void appendJson(StringBuilder line, Window window, int slot, long start) {
+        line.append("{\"time\":").append(start)
+                .append(",\"uuid\":\"").append(window.uuids[slot]).append('"')
+                .append(",\"name\":\"").append(escape(window.names[slot])).append('"')
+                .append(",\"hp\":").append(number(window.health[slot]))
+                .append(",\"maxHp\":").append(number(window.maxHealth[slot]))
+                .append(",\"healed\":").append(window.healed[slot])
+                .append(",\"heals\":").append(window.heals[slot])
+                .append(",\"damage\":").append(window.damage[slot])
+                .append(",\"hits\":").append(window.hits[slot])
+                .append(",\"timeToFullMs\":").append(window.timeToFullMs[slot])
+                .append('}');
+    }
+
+    private void appendCsv(StringBuilder line, Window window, int slot, long start) {
+        line.append(start).append(',')
+                .append(window.uuids[slot]).append(',')
+                .append(csvField(window.names[slot])).append(',')
+                .append(Float.isNaN(window.health[slot]) ? "" : Float.toString(window.health[slot])).append(',')
+                .append(Float.isNaN(window.maxHealth[slot]) ? "" : Float.toString(window.maxHealth[slot])).append(',')
+                .append(window.healed[slot]).append(',')
+                .append(window.heals[slot]).append(',')
+                .append(window.damage[slot]).append(',')
+                .append(window.hits[slot]).append(',')
+                .append(window.timeToFullMs[slot]);
+    }
+
+    private static String number(float value) {
+        return Float.isNaN(value) ? "null" : Float.toString(value);
+    }
+
+    private static String csvField(@Nullable String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String escape(@Nullable String value) {
+        return value == null ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private void ensureFile(boolean csvRows) throws IOException {
+        if (out != null) {
+            return;
+        }
+        Files.createDirectories(directory);
+        String extension = csvRows ? ".csv" : ".jsonl";
+        Path target = directory.resolve("regen-" + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date())
+                + extension);
+        out = new BufferedWriter(Files.newBufferedWriter(target, StandardCharsets.UTF_8), 1 << 16);
+        file = target;
+        fileBytes = 0L;
+        if (csvRows) {
+            out.append(CSV_HEADER).append('\n');
+        }
+        deleteOldFiles();
+    }
+
+    private void closeFile() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                LOGGER.atWarning().log("Failed to close telemetry file: " + e.getMessage());
+            }
+        }
+        out = null;
+        file = null;
+    }
+
+    private void deleteOldFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> entries = Files.list(directory)) {
+            entries.filter(path -> path.getFileName().toString().startsWith("regen-")).forEach(files::add);
+        }
+        if (files.size() <= maxFiles) {
+            return;
+        }
+        // Names sort by creation time
+        files.sort(null);
+        for (int i = 0; i < files.size() - maxFiles; i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    /**
+     * Aggregates of one window, as parallel arrays indexed by slot.
+     */
+    private static final class Window {
+        final UUID[] uuids = new UUID[MAX_PLAYERS];
+        final String[] names = new String[MAX_PLAYERS];
+        final boolean[] seen = new boolean[MAX_PLAYERS];
+        final float[] health = new float[MAX_PLAYERS];
+        final float[] maxHealth = new float[MAX_PLAYERS];
+        final float[] healed = new float[MAX_PLAYERS];
+        final int[] heals = new int[MAX_PLAYERS];
+        final float[] damage = new float[MAX_PLAYERS];
+        final int[] hits = new int[MAX_PLAYERS];
+        final long[] timeToFullMs = new long[MAX_PLAYERS];
+        int count;
+
+        /**
+         * Resets the aggregates, keeping the first {@code keep} slots' identity.
+         */
+        void clear(int keep) {
+            Arrays.fill(seen, false);
+            Arrays.fill(healed, 0f);
+            Arrays.fill(heals, 0);
+            Arrays.fill(damage, 0f);
+            Arrays.fill(hits, 0);
+            Arrays.fill(timeToFullMs, -1L);
+            Arrays.fill(uuids, keep, MAX_PLAYERS, null);
+            Arrays.fill(names, keep, MAX_PLAYERS, null);
+            count = keep;
+        }
+    }
+}
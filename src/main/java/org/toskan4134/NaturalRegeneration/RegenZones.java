@@ -0,0 +1,344 @@
+package org.toskan4134.NaturalRegeneration;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Regions that boost or suppress health regeneration (spawn safe zones,
+ * campfires, arenas), from the Zones config option and the API.
+ *
+ * A zone applies to one world, or to every world if it names none. Each world
+ * has its own index, a uniform grid of square cells on the X/Z plane. Each
+ * player caches the cell it was last resolved in, so zones are only looked up
+ * again when the player crosses a cell boundary; in cells entirely inside their
+ * zones the multiplier is precomputed, and only cells on a zone's edge test
+ * the player's position against the few zones overlapping them.
+ */
+public class RegenZones {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    // Y range of a zone that has no height limit
+    public static final float WORLD_MIN_Y = -100_000.0f;
+    public static final float WORLD_MAX_Y = 100_000.0f;
+
+    // Zones covering more cells than this are tested for every player instead of indexed
+    private static final long MAX_CELLS_PER_ZONE = 65_536L;
+
+    private static final Index EMPTY = new Index(RegenConfig.DEFAULT_ZONE_CELL_SIZE, new HashMap<>(), new Zone[0], 0);
+
+    // Index of each world that has its own zones (lowercase name), and of the other worlds
+    private volatile Map<String, Index> worldIndexes = new HashMap<>();
+    private volatile Index sharedIndex = EMPTY;
+    private volatile int zoneCount;
+
+    // Written under this
+    @Nullable
+    private volatile RegenSettings indexedSettings;
+    private final Map<String, Zone> apiZones = new LinkedHashMap<>();
+
+    /**
+     * Rebuilds the index if the configured zones changed. Called once per pass.
+     */
+    public void update(@Nonnull RegenSettings cfg) {
+        if (cfg != indexedSettings) {
+            rebuild(cfg);
+        }
+    }
+
+    /**
+     * Adds or replaces a zone registered through the API.
+     */
+    public void register(@Nonnull Zone zone) {
+        synchronized (this) {
+            apiZones.put(zone.getName(), zone);
+        }
+        rebuild(null);
+    }
+
+    /**
+     * Removes a zone registered through the API.
+     *
+     * @return true if a zone with that name was registered
+     */
+    public boolean unregister(@Nonnull String name) {
+        synchronized (this) {
+            if (apiZones.remove(name) == null) {
+                return false;
+            }
+        }
+        rebuild(null);
+        return true;
+    }
+
+    /**
+     * Gets the number of zones (configured and registered).
+     */
+    public int size() {
+        return zoneCount;
+    }
+
+    public boolean isEmpty() {
+        return zoneCount == 0;
+    }
+
+    /**
+     * Gets the index of the zones that apply in a world.
+     */
+    @Nonnull
+    Index getIndex(@Nonnull String world) {
+        Map<String, Index> indexes = worldIndexes;
+        if (!indexes.isEmpty()) {
+            Index index = indexes.get(world.toLowerCase(Locale.ROOT));
+            if (index != null) {
+                return index;
+            }
+        }
+        return sharedIndex;
+    }
+
+    /**
+     * Gets the regeneration multiplier at a player's position in a world, re-resolving
+     * the player's cell only when it changed. Overlapping zones multiply.
+     */
+    float getMultiplier(@Nonnull RegenState state, @Nonnull String world, double x, double y, double z) {
+        Index current = getIndex(world);
+        if (current.zoneCount == 0) {
+            return 1.0f;
+        }
+        long key = current.key(x, z);
+        if (state.zoneIndex != current || state.zoneCellKey != key) {
+            state.zoneIndex = current;
+            state.zoneCellKey = key;
+            state.zoneCell = current.cells.get(key);
+        }
+        float multiplier = 1.0f;
+        Cell cell = state.zoneCell;
+        if (cell != null) {
+            multiplier = Float.isNaN(cell.multiplier) ? resolve(cell.zones, x, y, z) : cell.multiplier;
+        }
+        if (current.large.length != 0) {
+            multiplier *= resolve(current.large, x, y, z);
+        }
+        return multiplier;
+    }
+
+    private static float resolve(Zone[] zones, double x, double y, double z) {
+        float multiplier = 1.0f;
+        for (Zone zone : zones) {
+            if (zone.contains(x, y, z)) {
+                multiplier *= zone.getMultiplier();
+            }
+        }
+        return multiplier;
+    }
+
+    private synchronized void rebuild(@Nullable RegenSettings cfg) {
+        if (cfg != null) {
+            indexedSettings = cfg;
+        }
+        RegenSettings settings = indexedSettings;
+        List<Zone> zones = new ArrayList<>();
+        float cellSize = RegenConfig.DEFAULT_ZONE_CELL_SIZE;
+        if (settings != null) {
+            cellSize = settings.getZoneCellSize();
+            zones.addAll(List.of(settings.getZones()));
+        }
+        zones.addAll(apiZones.values());
+
+        // Zones without a world go in every world's index
+        List<Zone> shared = new ArrayList<>();
+        Map<String, List<Zone>> byWorld = new HashMap<>();
+        for (Zone zone : zones) {
+            if (zone.getWorld() == null) {
+                shared.add(zone);
+            } else {
+                byWorld.computeIfAbsent(zone.getWorld().toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(zone);
+            }
+        }
+        Map<String, Index> indexes = new HashMap<>(byWorld.size() * 2);
+        for (Map.Entry<String, List<Zone>> entry : byWorld.entrySet()) {
+            entry.getValue().addAll(shared);
+            indexes.put(entry.getKey(), build(entry.getValue(), cellSize));
+        }
+        Index sharedBuilt = build(shared, cellSize);
+
+        sharedIndex = sharedBuilt;
+        worldIndexes = indexes;
+        zoneCount = zones.size();
+        LOGGER.atFine().log("Indexed " + zones.size() + " regeneration zones for " + (indexes.size() + 1) + " world indexes");
+    }
+
+    /**
+     * Builds the grid of a world's zones.
+     */
+    static Index build(List<Zone> zones, float cellSize) {
+        // Bucket zones by cell
+        Map<Long, List<Zone>> buckets = new HashMap<>();
+        List<Zone> large = new ArrayList<>();
+        for (Zone zone : zones) {
+            long minX = cell(zone.minX, cellSize);
+            long maxX = cell(zone.maxX, cellSize);
+            long minZ = cell(zone.minZ, cellSize);
+            long maxZ = cell(zone.maxZ, cellSize);
+            if ((maxX - minX + 1) * (maxZ - minZ + 1) > MAX_CELLS_PER_ZONE) {
+                large.add(zone);
+                continue;
+            }
+            for (long cx = minX; cx <= maxX; cx++) {
+                for (long cz = minZ; cz <= maxZ; cz++) {
+                    buckets.computeIfAbsent(Index.cellKey(cx, cz), k -> new ArrayList<>()).add(zone);
+                }
+            }
+        }
+
+        // Precompute the multiplier of cells entirely inside all their zones
+        Map<Long, Cell> cells = new HashMap<>(buckets.size() * 2);
+        for (Map.Entry<Long, List<Zone>> entry : buckets.entrySet()) {
+            long key = entry.getKey();
+            double cellMinX = (double) (int) (key >> 32) * cellSize;
+            double cellMinZ = (double) (int) key * cellSize;
+            float multiplier = 1.0f;
+            for (Zone zone : entry.getValue()) {
+                if (!zone.covers(cellMinX, cellMinZ, cellSize)) {
+                    multiplier = Float.NaN;
+                    break;
+                }
+                multiplier *= zone.getMultiplier();
+            }
+            cells.put(key, new Cell(entry.getValue().toArray(new Zone[0]), multiplier));
+        }
+
+        return new Index(cellSize, cells, large.toArray(new Zone[0]), zones.size());
+    }
+
+    private static long cell(float coordinate, float cellSize) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    /**
+     * A box in which passive health regeneration is multiplied (0 suppresses it).
+     */
+    public static final class Zone {
+        private final String name;
+        @Nullable
+        private final String world;
+        private final float minX, minY, minZ;
+        private final float maxX, maxY, maxZ;
+        private final float multiplier;
+
+        /**
+         * Creates a zone in one world, or in every world if {@code world} is null.
+         */
+        public Zone(@Nonnull String name, @Nullable String world, float x1, float y1, float z1,
+                    float x2, float y2, float z2, float multiplier) {
+            this.name = name;
+            this.world = world;
+            this.minX = Math.min(x1, x2);
+            this.minY = Math.min(y1, y2);
+            this.minZ = Math.min(z1, z2);
+            this.maxX = Math.max(x1, x2);
+            this.maxY = Math.max(y1, y2);
+            this.maxZ = Math.max(z1, z2);
+            this.multiplier = Math.max(0.0f, multiplier);
+        }
+
+        /**
+         * Creates a zone in every world.
+         */
+        public Zone(@Nonnull String name, float x1, float y1, float z1, float x2, float y2, float z2, float multiplier) {
+            this(name, null, x1, y1, z1, x2, y2, z2, multiplier);
+        }
+
+        /**
+         * Creates a zone with no height limit in one world, or in every world if {@code world} is null.
+         */
+        public Zone(@Nonnull String name, @Nullable String world, float x1, float z1, float x2, float z2, float multiplier) {
+            this(name, world, x1, WORLD_MIN_Y, z1, x2, WORLD_MAX_Y, z2, multiplier);
+        }
+
+        /**
+         * Creates a zone with no height limit in every world.
+         */
+        public Zone(@Nonnull String name, float x1, float z1, float x2, float z2, float multiplier) {
+            this(name, null, x1, WORLD_MIN_Y, z1, x2, WORLD_MAX_Y, z2, multiplier);
+        }
+
+        @Nonnull
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the world the zone is in, or null if it applies in every world.
+         */
+        @Nullable
+        public String getWorld() {
+            return world;
+        }
+
+        public float getMultiplier() {
+            return multiplier;
+        }
+
+        public boolean contains(double x, double y, double z) {
+            return x >= minX && x <= maxX && z >= minZ && z <= maxZ && y >= minY && y <= maxY;
+        }
+
+        /**
+         * Checks if the zone contains a whole cell at every height.
+         */
+        boolean covers(double cellMinX, double cellMinZ, float cellSize) {
+            return minY <= WORLD_MIN_Y && maxY >= WORLD_MAX_Y
+                    && cellMinX >= minX && cellMinX + cellSize <= maxX
+                    && cellMinZ >= minZ && cellMinZ + cellSize <= maxZ;
+        }
+    }
+
+    /**
+     * Zones overlapping one cell, and their combined multiplier if it is the
+     * same everywhere in the cell (NaN otherwise).
+     */
+    static final class Cell {
+        final Zone[] zones;
+        final float multiplier;
+
+        Cell(Zone[] zones, float multiplier) {
+            this.zones = zones;
+            this.multiplier = multiplier;
+        }
+    }
+
+    /**
+     * Immutable grid, replaced as a whole when zones change.
+     */
+    static final class Index {
+        final float cellSize;
+        final Map<Long, Cell> cells;
+        final Zone[] large;
+        final int zoneCount;
+
+        Index(float cellSize, Map<Long, Cell> cells, Zone[] large, int zoneCount) {
+            this.cellSize = cellSize;
+            this.cells = cells;
+            this.large = large;
+            this.zoneCount = zoneCount;
+        }
+
+        long key(double x, double z) {
+            return cellKey((long) Math.floor(x / cellSize), (long) Math.floor(z / cellSize));
+        }
+
+        static long cellKey(long cellX, long cellZ) {
+            return (cellX << 32) | (cellZ & 0xFFFFFFFFL);
+        }
+    }
+}
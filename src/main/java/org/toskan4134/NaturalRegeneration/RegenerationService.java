@@ -0,0 +1,83 @@
+package org.toskan4134.NaturalRegeneration;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import javax.annotation.Nonnull;
+import java.util.UUID;
+
+/**
+ * Public API of the NaturalRegeneration plugin, for other plugins.
+ * Obtain it with {@code NaturalRegenerationPlugin.getInstance().getService()}.
+ */
+public interface RegenerationService {
+
+    /**
+     * Checks if a player is currently allowed to regenerate: regeneration is enabled,
+     * their damage delay has passed and no pause condition held at their last interval.
+     *
+     * @param player the player's UUID
+     */
+    boolean canRegenerate(@Nonnull UUID player);
+
+    /**
+     * Gets the time of the last damage received by a player.
+     *
+     * @param player the player's UUID
+     * @return Timestamp in milliseconds, or 0 if never damaged
+     */
+    long getLastDamageTime(@Nonnull UUID player);
+
+    /**
+     * Gets the time until which a player's regeneration is blocked by damage.
+     *
+     * @param player the player's UUID
+     * @return Timestamp in milliseconds, or 0 if not blocked
+     */
+    long getRegenBlockedUntil(@Nonnull UUID player);
+
+    /**
+     * Gets the health an NPC has regenerated but not yet received, when NPCs are
+     * regenerated lazily. Add it to the current health to get the health the entity
+     * effectively has. Reading it applies it on the entity's next world tick.
+     *
+     * @param entity the NPC
+     * @return the pending heal, clamped to the health cap, or 0 if none
+     */
+    float getPendingHeal(@Nonnull Ref<EntityStore> entity);
+
+    /**
+     * Adds a region where players' passive health regeneration is multiplied
+     * (e.g. 2 near a campfire, 0 in an arena). Replaces a zone with the same name.
+     */
+    void addZone(@Nonnull RegenZones.Zone zone);
+
+    /**
+     * Removes a zone added with {@link #addZone}.
+     *
+     * @return true if a zone with that name existed
+     */
+    boolean removeZone(@Nonnull String name);
+
+    /**
+     * Gets the current regeneration settings.
+     */
+    @Nonnull
+    RegenSettings getSettings();
+
+    /**
+     * Gets the heal pipeline used to add timed regeneration sources.
+     */
+    @Nonnull
+    HealPipeline getHealPipeline();
+
+    /**
+     * Adds a listener called before and after every heal.
+     */
+    void addHealListener(@Nonnull HealListener listener);
+
+    /**
+     * Removes a heal listener.
+     */
+    void removeHealListener(@Nonnull HealListener listener);
+}
@@ -0,0 +1,168 @@
+package org.toskan4134.NaturalRegeneration;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Default {@link RegenerationService} implementation.
+ * Listeners are kept in a copy-on-write array, so the tick system only reads
+ * an empty array when nothing is registered.
+ */
+public class RegenerationServiceImpl implements RegenerationService {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private static final HealListener[] NO_LISTENERS = new HealListener[0];
+
+    private final RegenConfigManager configManager;
+    private final HealPipeline healPipeline;
+    private final NpcRegenerationSystem npcSystem;
+    private final RegenZones zones;
+
+    private volatile HealListener[] listeners = NO_LISTENERS;
+
+    // Players whose last due health interval was blocked by the pause conditions
+    private final Set<UUID> pausedPlayers = ConcurrentHashMap.newKeySet();
+
+    public RegenerationServiceImpl(@Nonnull RegenConfigManager configManager, @Nonnull HealPipeline healPipeline,
+                                   @Nonnull NpcRegenerationSystem npcSystem, @Nonnull RegenZones zones) {
+        this.configManager = configManager;
+        this.healPipeline = healPipeline;
+        this.npcSystem = npcSystem;
+        this.zones = zones;
+    }
+
+    @Override
+    public boolean canRegenerate(@Nonnull UUID player) {
+        // Same gates as the tick system: enabled, pause conditions and damage delay
+        return configManager.getSettings().isEnabled()
+                && !pausedPlayers.contains(player)
+                && DamageTracker.canRegenerate(player, System.currentTimeMillis());
+    }
+
+    /**
+     * Records whether a player's regeneration is paused, as last evaluated by the tick system.
+     */
+    void setPaused(@Nonnull UUID player, boolean paused) {
+        if (paused) {
+            pausedPlayers.add(player);
+        } else {
+            pausedPlayers.remove(player);
+        }
+    }
+
+    @Override
+    public long getLastDamageTime(@Nonnull UUID player) {
+        return DamageTracker.getLastDamageTime(player);
+    }
+
+    @Override
+    public long getRegenBlockedUntil(@Nonnull UUID player) {
+        DamageTracker.DamageRecord record = DamageTracker.getRecord(player);
+        return record != null ? record.getRegenBlockedUntil() : 0L;
+    }
+
+    @Override
+    public float getPendingHeal(@Nonnull Ref<EntityStore> entity) {
+        return npcSystem.getPendingHeal(entity);
+    }
+
+    @Override
+    public void addZone(@Nonnull RegenZones.Zone zone) {
+        zones.register(zone);
+        LOGGER.atInfo().log("Registered regeneration zone " + zone.getName());
+    }
+
+    @Override
+    public boolean removeZone(@Nonnull String name) {
+        return zones.unregister(name);
+    }
+
+    /**
+     * Gets the zone index read by the tick system.
+     */
+    RegenZones getZones() {
+        return zones;
+    }
+
+    @Nonnull
+    @Override
+    public RegenSettings getSettings() {
+        return configManager.getSettings();
+    }
+
+    @Nonnull
+    @Override
+    public HealPipeline getHealPipeline() {
+        return healPipeline;
+    }
+
+    @Override
+    public synchronized void addHealListener(@Nonnull HealListener listener) {
+        HealListener[] current = listeners;
+        HealListener[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = listener;
+        listeners = grown;
+    }
+
+    @Override
+    public synchronized void removeHealListener(@Nonnull HealListener listener) {
+        HealListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                HealListener[] shrunk = new HealListener[current.length - 1];
+                System.arraycopy(current, 0, shrunk, 0, i);
+                System.arraycopy(current, i + 1, shrunk, i, current.length - i - 1);
+                listeners = current.length == 1 ? NO_LISTENERS : shrunk;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the registered listeners. Empty (never null) when there are none.
+     */
+    @Nonnull
+    HealListener[] getListeners() {
+        return listeners;
+    }
+
+    /**
+     * Runs the pre-heal chain. Each listener sees the amount returned by the previous one.
+     *
+     * @return the final amount; 0 or less means the heal was vetoed
+     */
+    static float firePreHeal(@Nonnull HealListener[] listeners, @Nonnull UUID player, float amount) {
+        for (HealListener listener : listeners) {
+            try {
+                amount = listener.preHeal(player, amount);
+            } catch (RuntimeException e) {
+                LOGGER.atWarning().log("Heal listener " + listener.getClass().getName() + " failed: " + e.getMessage());
+            }
+            if (amount <= 0) {
+                return 0f;
+            }
+        }
+        return amount;
+    }
+
+    /**
+     * Runs the post-heal chain.
+     */
+    static void firePostHeal(@Nonnull HealListener[] listeners, @Nonnull UUID player, float amount, float newHealth) {
+        for (HealListener listener : listeners) {
+            try {
+                listener.postHeal(player, amount, newHealth);
+            } catch (RuntimeException e) {
+                LOGGER.atWarning().log("Heal listener " + listener.getClass().getName() + " failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -2,24 +2,39 @@ package org.toskan4134.NaturalRegeneration;
 
 import com.hypixel.hytale.component.ArchetypeChunk;
 import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.ComponentType;
 import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.component.query.Query;
 import com.hypixel.hytale.component.system.tick.EntityTickingSystem;
 import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
 import com.hypixel.hytale.server.core.modules.entitystats.EntityStatMap;
 import com.hypixel.hytale.server.core.modules.entitystats.EntityStatValue;
 import com.hypixel.hytale.server.core.modules.entitystats.EntityStatsModule;
 import com.hypixel.hytale.server.core.modules.entitystats.asset.DefaultEntityStatTypes;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
-import com.hypixel.hytale.server.core.util.Config;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
- * System that passively regenerates health for players.
+ * System that passively regenerates health for players, plus any other stats
+ * configured in StatRules (stamina, mana...) in the same pass.
  * Only regenerates if enough time has passed since last damage.
  * Optimized to run only on players and minimize allocations.
  */
@@ -27,16 +42,80 @@ public class RegenerationTickSystem extends EntityTickingSystem<EntityStore> {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
 
-    private final Config<RegenConfig> config;
+    // Players not ticked for a whole sweep interval (a missed disconnect) are evicted
+    private static final long SWEEP_INTERVAL_NANOS = 60_000_000_000L;
+
+    // Returned by stepHealth when no health interval elapsed
+    static final float NOT_DUE = -1f;
+
+    private final RegenConfigManager configManager;
+
+    // Component types, resolved once instead of on every entity
+    private final ComponentType<EntityStore, EntityStatMap> statMapType;
+    private final ComponentType<EntityStore, TransformComponent> transformType;
+    private final ComponentType<EntityStore, PlayerRef> playerRefType;
 
     // Cache for health index to avoid looking it up every tick
     private int cachedHealthIndex = Integer.MIN_VALUE;
 
-    // Time accumulator per entity to control interval
-    private final Map<Integer, Float> timeAccumulators = new ConcurrentHashMap<>();
+    // Per-player state (interval accumulator, heal sources...), keyed by UUID: it follows the
+    // player across worlds and is never inherited by another entity reusing the chunk index
+    private final Map<UUID, RegenState> states = new ConcurrentHashMap<>();
+
+    // Evictions and sweeps of the players each world owns, run by that world's thread
+    private final Map<Store<EntityStore>, WorldPlayers> worlds = new ConcurrentHashMap<>();
+
+    // Persists damage state across restarts
+    private final RegenStateSnapshot snapshot;
+
+    // Shares damage state with other servers (never read on the tick path)
+    private final DamageStateStore damageStore;
+
+    // Damage events buffered by the damage listener, per world
+    private final DamageEvents damageEvents;
+
+    // Timed regeneration sources registered by other plugins
+    private final HealPipeline healPipeline;
+
+    // Public API, owns the heal listeners
+    private final RegenerationServiceImpl service;
+
+    // Player positions for the NPC level-of-detail
+    private final PlayerPositions playerPositions;
+
+    // Optional trace of regeneration inputs and outcomes
+    private final TraceRecorder recorder;
+
+    // Per-player heal and damage aggregates, only fed while enabled
+    private final RegenTelemetry telemetry;
+
+    // Time budget progress, per world
+    private final Map<Store<EntityStore>, PassBudget> budgets = new ConcurrentHashMap<>();
 
-    public RegenerationTickSystem(Config<RegenConfig> config) {
-        this.config = config;
+    // Load-adaptive cadence, per world
+    private final Map<Store<EntityStore>, LoadCadence> cadences = new ConcurrentHashMap<>();
+
+    // JFR events of the passes in progress, only while a recording enables them
+    private final Map<Store<EntityStore>, RegenJfr.TickPassEvent> passEvents = new ConcurrentHashMap<>();
+
+    // State copies requested by /nr inspect; each world adds its own players at the end of its pass
+    private final Queue<ViewRequest> viewRequests = new ConcurrentLinkedQueue<>();
+
+    public RegenerationTickSystem(RegenConfigManager configManager, RegenStateSnapshot snapshot,
+                                  DamageStateStore damageStore, DamageEvents damageEvents, RegenerationServiceImpl service,
+                                  PlayerPositions playerPositions, TraceRecorder recorder, RegenTelemetry telemetry) {
+        this.configManager = configManager;
+        this.snapshot = snapshot;
+        this.damageStore = damageStore;
+        this.damageEvents = damageEvents;
+        this.healPipeline = service.getHealPipeline();
+        this.service = service;
+        this.playerPositions = playerPositions;
+        this.recorder = recorder;
+        this.telemetry = telemetry;
+        this.statMapType = EntityStatsModule.get().getEntityStatMapComponentType();
+        this.transformType = TransformComponent.getComponentType();
+        this.playerRefType = PlayerRef.getComponentType();
     }
 
     @Nonnull
@@ -52,6 +131,239 @@ public class RegenerationTickSystem extends EntityTickingSystem<EntityStore> {
         return false;
     }
 
+    /**
+     * Requests a copy of every player's regeneration state.
+     * Each world copies the players it owns at the end of its own pass, so every
+     * copy is consistent, and costs each world thread one pass over the states;
+     * everything else can run elsewhere.
+     *
+     * @return a future completed once every ticking world has added its players
+     */
+    @Nonnull
+    public CompletableFuture<List<RegenStateView>> requestViews() {
+        ViewRequest request = new ViewRequest(worlds.keySet());
+        if (request.remaining.isEmpty()) {
+            request.future.complete(Collections.emptyList());
+        } else {
+            viewRequests.add(request);
+        }
+        return request.future;
+    }
+
+    /**
+     * Requests the eviction of a player's regeneration and damage state when they leave
+     * the server. Applied at the start of the next pass of the world that last ticked
+     * the player, on that world's thread, so it never races with the player's own tick.
+     * Changing world needs nothing: the state is keyed by UUID.
+     *
+     * @param uuid the player
+     */
+    public void requestEviction(@Nonnull UUID uuid) {
+        RegenState state = states.get(uuid);
+        if (state == null) {
+            return;
+        }
+        Store<EntityStore> owner = state.owner;
+        WorldPlayers world = owner != null ? worlds.get(owner) : null;
+        // Without a ticking world the sweep evicts the player
+        if (world != null) {
+            world.evictions.add(uuid);
+        }
+    }
+
+    /**
+     * Cancels a pending eviction when a player joins again before it was applied,
+     * so their state carries on as if they never left.
+     *
+     * @param uuid the player
+     * @return true if an eviction was pending
+     */
+    public boolean cancelEviction(@Nonnull UUID uuid) {
+        boolean cancelled = false;
+        for (WorldPlayers world : worlds.values()) {
+            cancelled |= world.evictions.remove(uuid);
+        }
+        return cancelled;
+    }
+
+    /**
+     * Gets the number of players with regeneration state.
+     */
+    public int getTrackedCount() {
+        return states.size();
+    }
+
+    /**
+     * Evicts the players who left while in this world. Runs on the world's thread.
+     */
+    private void evictPlayers(Store<EntityStore> store, WorldPlayers world) {
+        UUID uuid;
+        while ((uuid = world.evictions.poll()) != null) {
+            RegenState state = states.get(uuid);
+            if (state == null) {
+                continue;
+            }
+            if (state.owner != store) {
+                // Changed world before leaving: the new world's thread evicts the player
+                WorldPlayers owner = worlds.get(state.owner);
+                if (owner != null) {
+                    owner.evictions.add(uuid);
+                }
+                continue;
+            }
+            snapshot.takeRestore(uuid);
+            states.remove(uuid);
+            evict(uuid, state);
+        }
+    }
+
+    /**
+     * Evicts this world's players not ticked in the whole previous sweep interval,
+     * whose disconnect was missed, so their state cannot pile up. Runs on the world's
+     * thread; players of a world that stopped ticking (unloaded) are evicted by any
+     * world, since no thread touches them anymore.
+     */
+    private void sweepStates(Store<EntityStore> store, long nowNanos) {
+        Iterator<RegenState> iterator = states.values().iterator();
+        while (iterator.hasNext()) {
+            RegenState state = iterator.next();
+            Store<EntityStore> owner = state.owner;
+            if (owner == store) {
+                if (state.ticks != state.ticksAtSweep) {
+                    state.ticksAtSweep = state.ticks;
+                    continue;
+                }
+            } else {
+                WorldPlayers ownerWorld = owner != null ? worlds.get(owner) : null;
+                if (ownerWorld != null && nowNanos - ownerWorld.lastPassNanos < SWEEP_INTERVAL_NANOS) {
+                    continue;
+                }
+            }
+            iterator.remove();
+            evict(state.uuid, state);
+        }
+        worlds.values().removeIf(world -> nowNanos - world.lastPassNanos >= SWEEP_INTERVAL_NANOS);
+        damageEvents.removeIdle(nowNanos, SWEEP_INTERVAL_NANOS);
+    }
+
+    /**
+     * Saves an evicted player's damage state and accumulator for their next join,
+     * and shares the damage state with the other servers.
+     */
+    private void evict(UUID uuid, RegenState state) {
+        DamageTracker.DamageRecord damage = DamageTracker.getRecord(uuid);
+        if (damage != null) {
+            long lastDamage = damage.getLastDamageTime();
+            long blockedUntil = damage.getRegenBlockedUntil();
+            if (lastDamage != 0L || blockedUntil != 0L) {
+                snapshot.stage(uuid, lastDamage, blockedUntil, state.timeAccumulator);
+                damageStore.publish(uuid, lastDamage, blockedUntil);
+            }
+            DamageTracker.clearEntity(uuid);
+        }
+        if (state.paused) {
+            service.setPaused(uuid, false);
+        }
+        RegenMetrics.recordEviction();
+    }
+
+    /**
+     * Adds copies of this world's players to the pending view requests.
+     * Runs on the world's thread at the end of its pass.
+     */
+    private void publishViews(Store<EntityStore> store, long nowNanos) {
+        List<RegenStateView> views = new ArrayList<>();
+        for (RegenState state : states.values()) {
+            if (state.owner != store) {
+                continue;
+            }
+            DamageTracker.DamageRecord damage = DamageTracker.getRecord(state.uuid);
+            views.add(new RegenStateView(state.uuid, state.username,
+                    damage != null ? damage.getLastDamageTime() : 0L,
+                    damage != null ? damage.getRegenBlockedUntil() : 0L,
+                    state.timeAccumulator,
+                    state.healSources != null ? state.healSources.size() : 0));
+        }
+        for (ViewRequest request : viewRequests) {
+            request.add(store, views, worlds, nowNanos);
+        }
+        viewRequests.removeIf(request -> request.future.isDone());
+    }
+
+    @Override
+    public void tick(float dt, int systemIndex, @Nonnull Store<EntityStore> store) {
+        RegenJfr.TickPassEvent event = new RegenJfr.TickPassEvent();
+        event.begin();
+        if (recorder.isRecording()) {
+            recorder.recordPass(System.currentTimeMillis(), dt);
+        }
+
+        // Apply this tick's damage before any entity is checked (heal sources are taken by each player's tick)
+        event.damageEvents = damageEvents.get(store).drain();
+        if (healPipeline.hasPending()) {
+            healPipeline.expire(System.currentTimeMillis());
+        }
+
+        // Evictions and sweeps of this world's players, on its own thread
+        WorldPlayers world = worlds.get(store);
+        if (world == null) {
+            world = worlds.computeIfAbsent(store, k -> new WorldPlayers());
+        }
+        long passNanos = System.nanoTime();
+        world.lastPassNanos = passNanos;
+        if (!world.evictions.isEmpty()) {
+            evictPlayers(store, world);
+        }
+        if (passNanos - world.lastSweepNanos >= SWEEP_INTERVAL_NANOS) {
+            world.lastSweepNanos = passNanos;
+            sweepStates(store, passNanos);
+        }
+
+        RegenSettings cfg = configManager.getSettings();
+        service.getZones().update(cfg);
+
+        // Stretch the interval while this world's ticks run slow
+        LoadCadence cadence = null;
+        if (cfg.isAdaptiveCadence()) {
+            cadence = cadences.computeIfAbsent(store, k -> new LoadCadence());
+            cadence.update(System.nanoTime(), cfg);
+        } else if (!cadences.isEmpty()) {
+            cadences.remove(store);
+        }
+        if (cfg.isTelemetry() || telemetry.isEnabled()) {
+            telemetry.tick(store, cfg, System.currentTimeMillis());
+        }
+
+        // Publish last tick's player positions and collect this tick's
+        if (cfg.isNpcRegeneration()) {
+            playerPositions.get(store).swap();
+        }
+
+        boolean profiled = event.isEnabled();
+        if (profiled) {
+            passEvents.put(store, event);
+        }
+
+        long budgetNanos = cfg.getTickBudgetNanos();
+        if (budgetNanos <= 0) {
+            budgets.remove(store);
+            super.tick(dt, systemIndex, store);
+        } else {
+            PassBudget budget = budgets.computeIfAbsent(store, k -> new PassBudget());
+            budget.begin(System.nanoTime() + budgetNanos);
+            super.tick(dt, systemIndex, store);
+            budget.end();
+        }
+
+        if (profiled) {
+            passEvents.remove(store);
+        }
+        if (!viewRequests.isEmpty()) {
+            publishViews(store, passNanos);
+        }
+        event.commit();
+    }
+
     @Override
     public void tick(float dt,
                      int entityIndex,
@@ -59,81 +371,558 @@ public class RegenerationTickSystem extends EntityTickingSystem<EntityStore> {
                      @Nonnull Store<EntityStore> store,
                      @Nonnull CommandBuffer<EntityStore> commandBuffer) {
 
-        RegenConfig cfg = config.get();
+        // Read one snapshot so a concurrent reload never mixes old and new values
+        RegenSettings cfg = configManager.getSettings();
 
         // Check if system is enabled
         if (!cfg.isEnabled()) {
             return;
         }
 
-        // Accumulate time for this entity
-        float accumulated = timeAccumulators.getOrDefault(entityIndex, 0f) + dt;
-        float intervalSec = cfg.getIntervalSeconds();
+        RegenJfr.TickPassEvent passEvent = passEvents.isEmpty() ? null : passEvents.get(store);
+        if (passEvent != null) {
+            passEvent.entities++;
+        }
 
-        // Only process if interval has passed
-        if (accumulated < intervalSec) {
-            timeAccumulators.put(entityIndex, accumulated);
+        // Record the player position for the NPC level-of-detail
+        TransformComponent transform = null;
+        if (cfg.isNpcRegeneration()) {
+            transform = chunk.getComponent(entityIndex, transformType);
+            if (transform != null) {
+                Vector3d position = transform.getPosition();
+                playerPositions.get(store).add(position.getX(), position.getZ());
+            }
+        }
+
+        // The entity index is only valid in this chunk for this tick: look the player up by UUID
+        PlayerRef playerRef = chunk.getComponent(entityIndex, playerRefType);
+        if (playerRef == null) {
+            return;
+        }
+        UUID uuid = playerRef.getUuid();
+        RegenState state = states.get(uuid);
+        if (state == null) {
+            state = new RegenState(uuid, playerRef.getUsername());
+            state.owner = store;
+            states.put(uuid, state);
+        } else if (state.owner != store) {
+            // Changed world: this world's thread owns the state from now on
+            state.owner = store;
+        }
+        state.ticks++;
+        if (healPipeline.hasPending()) {
+            healPipeline.drain(uuid, state);
+        }
+        if (telemetry.isEnabled()) {
+            telemetry.get(store).bind(uuid, state.username);
+        }
+
+        // Apply state saved before a restart once the player's snapshot is loaded
+        if (snapshot.hasPendingRestores()) {
+            RegenStateSnapshot.Record restored = snapshot.takeRestore(uuid);
+            if (restored != null) {
+                DamageTracker.restore(uuid, restored.getLastDamageTime(), restored.getRegenBlockedUntil());
+                state.timeAccumulator = restored.getTimeAccumulator();
+                if (recorder.isRecording()) {
+                    recorder.recordState(uuid, restored.getLastDamageTime(),
+                            restored.getRegenBlockedUntil(), restored.getTimeAccumulator());
+                }
+            }
+        }
+
+        // A trace starts from the state the player already has
+        if (recorder.isRecording() && state.traceGeneration != recorder.getGeneration()) {
+            state.traceGeneration = recorder.getGeneration();
+            DamageTracker.DamageRecord record = DamageTracker.getRecord(uuid);
+            recorder.recordState(uuid, record != null ? record.getLastDamageTime() : 0L,
+                    record != null ? record.getRegenBlockedUntil() : 0L, state.timeAccumulator);
+        }
+
+        // Over the time budget: defer to a later pass, keeping the elapsed time
+        PassBudget budget = budgets.isEmpty() ? null : budgets.get(store);
+        if (budget != null) {
+            if (budget.shouldDefer(state)) {
+                state.deferredDt += dt;
+                return;
+            }
+            dt += state.deferredDt;
+            state.deferredDt = 0f;
+        }
+
+        // Advance the health interval (the same step the trace replay runs)
+        LoadCadence cadence = cadences.isEmpty() ? null : cadences.get(store);
+        float stretch = cadence != null ? cadence.stretch : 1.0f;
+        long now = recorder.isRecording() ? System.currentTimeMillis() : 0L;
+        float passiveAmount = stepHealth(cfg, state, uuid, dt, stretch, now);
+        boolean healthDue = passiveAmount != NOT_DUE;
+
+        // Regeneration zone at the player's position (only looked up again in a new grid cell)
+        RegenZones zones = service.getZones();
+        if (healthDue && !zones.isEmpty()) {
+            if (transform == null) {
+                transform = chunk.getComponent(entityIndex, transformType);
+            }
+            if (transform != null) {
+                Vector3d position = transform.getPosition();
+                String world = store.getExternalData().getWorld().getName();
+                state.zoneMultiplier = zones.getMultiplier(state, world, position.getX(), position.getY(), position.getZ());
+            }
+        } else if (state.zoneMultiplier != 1.0f && zones.isEmpty()) {
+            state.zoneMultiplier = 1.0f;
+        }
+
+        // Pause conditions (e.g. low hunger) block passive regeneration like the damage delay
+        EntityStatMap statMap = null;
+        boolean paused = false;
+        if (healthDue && cfg.hasPauseConditions()) {
+            statMap = chunk.getComponent(entityIndex, statMapType);
+            paused = statMap != null && cfg.isRegenPaused(statMap);
+        }
+        if (healthDue && paused != state.paused) {
+            state.paused = paused;
+            service.setPaused(uuid, paused);
+        }
+
+        if (now != 0L) {
+            // Zone multipliers make the heal unpredictable for a replay, like timed sources
+            recorder.recordStep(cfg, uuid, dt, stretch, healthDue,
+                    state.healSources != null || state.zoneMultiplier != 1.0f, paused, now);
+        }
+
+        boolean statsDue = false;
+        int statCount = cfg.getStatCount();
+        if (statCount > 0) {
+            if (state.statAccumulators == null || state.statAccumulators.length != statCount) {
+                state.statAccumulators = new float[statCount];
+            }
+            float[] statAccumulators = state.statAccumulators;
+            for (int i = 0; i < statCount; i++) {
+                statAccumulators[i] += dt;
+                statsDue |= statAccumulators[i] >= cfg.getStatInterval(i);
+            }
+        }
+
+        // Only process if an interval has passed
+        if (!healthDue && !statsDue) {
             return;
         }
 
-        // Reset accumulator (keep excess for precision)
-        timeAccumulators.put(entityIndex, accumulated - intervalSec);
+        // Hand new damage to the snapshot (only when it changed; other servers get it as it is drained)
+        DamageTracker.DamageRecord damage = DamageTracker.getRecord(uuid);
+        long lastDamage = damage != null ? damage.getLastDamageTime() : 0L;
+        long blockedUntil = damage != null ? damage.getRegenBlockedUntil() : 0L;
+        if (lastDamage != state.persistedDamageTime || blockedUntil != state.persistedBlockedUntil) {
+            state.persistedDamageTime = lastDamage;
+            state.persistedBlockedUntil = blockedUntil;
+            snapshot.stage(uuid, lastDamage, blockedUntil, state.timeAccumulator);
+        }
+
+        if (now == 0L) {
+            now = System.currentTimeMillis();
+        }
+
+        if (healthDue) {
+            statMap = regenerateHealth(cfg, state, entityIndex, chunk, statMap, passiveAmount, paused,
+                    cfg.getIntervalSeconds() * stretch, passEvent);
+        }
+
+        if (statsDue) {
+            if (statMap == null) {
+                statMap = chunk.getComponent(entityIndex, statMapType);
+            }
+            if (statMap != null) {
+                regenerateStats(cfg, state, statMap, now - lastDamage);
+            }
+        }
+    }
+
+    /**
+     * Applies one health interval: passive regeneration combined with timed sources.
+     *
+     * @param statMap the entity's stat map if the pause conditions already fetched it
+     * @param passiveAmount the passive heal returned by {@link #stepHealth}
+     * @return the entity's stat map if it was fetched, so other stats can reuse it
+     */
+    private EntityStatMap regenerateHealth(RegenSettings cfg, RegenState state, int entityIndex,
+                                           ArchetypeChunk<EntityStore> chunk, @Nullable EntityStatMap statMap,
+                                           float passiveAmount, boolean paused, float intervalSec,
+                                           @Nullable RegenJfr.TickPassEvent passEvent) {
+        boolean blocked = state.damageBlocked || paused;
+        if (paused && !state.damageBlocked) {
+            RegenMetrics.recordPausedInterval();
+        }
+
+        // Combine passive regeneration (scaled by the player's zone) with timed sources into one heal
+        float regenAmount = blocked ? 0f : passiveAmount * state.zoneMultiplier;
+        boolean sourced = state.healSources != null || state.zoneMultiplier != 1.0f;
+        if (state.healSources != null) {
+            regenAmount = healPipeline.combine(state.healSources, regenAmount, intervalSec, blocked);
+            if (state.healSources.isEmpty()) {
+                state.healSources = null;
+            }
+        }
+
+        // Nothing to heal (e.g. still in the damage delay), skip the stat lookups
+        if (regenAmount <= 0 && state.pendingHeal <= 0) {
+            return statMap;
+        }
 
         // Cache health index
         if (cachedHealthIndex == Integer.MIN_VALUE) {
             cachedHealthIndex = DefaultEntityStatTypes.getHealth();
             if (cachedHealthIndex == Integer.MIN_VALUE) {
-                return;
+                return statMap;
             }
         }
 
-        // Get entity stat map
-        EntityStatMap statMap = chunk.getComponent(entityIndex, EntityStatsModule.get().getEntityStatMapComponentType());
+        // Get entity stat map (unless the pause conditions already fetched it)
         if (statMap == null) {
-            return;
+            statMap = chunk.getComponent(entityIndex, statMapType);
+        }
+        if (statMap == null) {
+            return null;
         }
 
         // Get health value
         EntityStatValue healthValue = statMap.get(cachedHealthIndex);
         if (healthValue == null) {
-            return;
+            return statMap;
         }
 
         float currentHealth = healthValue.get();
         float maxHealth = healthValue.getMax();
 
-        // Calculate effective health cap
-        float healthCap = cfg.getEffectiveHealthCap(maxHealth);
-        // Cap cannot exceed max health
-        float effectiveCap = Math.min(healthCap, maxHealth);
+        // Calculate effective health cap (never above max health)
+        float effectiveCap = cfg.getEffectiveHealthCap(maxHealth);
+
+        // Health including coalesced heals not written yet
+        float pending = state.pendingHeal;
+        float health = currentHealth + pending;
+
+        // Regeneration stopped (e.g. damaged) while heals were coalesced: write them now
+        if (regenAmount <= 0) {
+            state.pendingHeal = 0f;
+            writeHeal(cfg, state, statMap, healthValue, capHeal(currentHealth, effectiveCap, pending),
+                    effectiveCap, service.getListeners(), passEvent);
+            return statMap;
+        }
 
         // If already at or above the effective cap, do nothing
-        if (currentHealth >= effectiveCap) {
-            return;
+        if (health >= effectiveCap) {
+            if (recorder.isRecording()) {
+                recorder.recordHeal(state.uuid, health, maxHealth, 0f, sourced);
+            }
+            if (pending > 0) {
+                state.pendingHeal = 0f;
+                writeHeal(cfg, state, statMap, healthValue, capHeal(currentHealth, effectiveCap, pending),
+                        effectiveCap, service.getListeners(), passEvent);
+            }
+            return statMap;
         }
 
-        // Check if entity can regenerate (using delay from config)
-        if (!DamageTracker.canRegenerate(entityIndex, System.currentTimeMillis(), cfg.getDelayMs())) {
-            return;
+        // Cap the regeneration amount at the effective cap
+        regenAmount = capHeal(health, effectiveCap, regenAmount);
+
+        // Let other plugins veto or modify the heal (skipped when none are registered)
+        HealListener[] listeners = service.getListeners();
+        if (listeners.length != 0) {
+            regenAmount = Math.min(RegenerationServiceImpl.firePreHeal(listeners, state.uuid, regenAmount),
+                    effectiveCap - health);
         }
 
-        // Calculate regeneration amount, capping at the effective cap
-        float regenAmount = cfg.getAmountHP();
-        float newHealth = currentHealth + regenAmount;
-        if (newHealth > effectiveCap) {
-            regenAmount = effectiveCap - currentHealth;
+        if (recorder.isRecording()) {
+            recorder.recordHeal(state.uuid, health, maxHealth, Math.max(regenAmount, 0f),
+                    sourced || listeners.length != 0);
         }
 
         // Only regenerate if there's actually something to heal
+        if (regenAmount <= 0 && pending <= 0) {
+            return statMap;
+        }
+        float total = pending + Math.max(regenAmount, 0f);
+
+        // Keep small heals server-side until they add up to HealCoalesceHP or reach the cap
+        if (shouldCoalesce(cfg.getHealCoalesceHP(), total, health + regenAmount, effectiveCap)) {
+            state.pendingHeal = total;
+            if (regenAmount > 0) {
+                RegenMetrics.recordCoalescedHeal();
+            }
+            return statMap;
+        }
+        state.pendingHeal = 0f;
+
+        writeHeal(cfg, state, statMap, healthValue, total, effectiveCap, listeners, passEvent);
+        return statMap;
+    }
+
+    /**
+     * Writes a heal to the health stat (one stat write for all sources and coalesced heals).
+     */
+    private void writeHeal(RegenSettings cfg, RegenState state, EntityStatMap statMap,
+                           EntityStatValue healthValue, float regenAmount, float effectiveCap,
+                           HealListener[] listeners, @Nullable RegenJfr.TickPassEvent passEvent) {
         if (regenAmount <= 0) {
             return;
         }
 
-        // Apply regeneration
+        // Apply regeneration (one stat write for all sources)
         statMap.addStatValue(cachedHealthIndex, regenAmount);
+        if (passEvent != null) {
+            passEvent.heals++;
+            passEvent.healed += regenAmount;
+        }
 
-        LOGGER.atFine().log("Regenerating " + regenAmount + " HP to player " + entityIndex +
+        if (listeners.length != 0) {
+            RegenerationServiceImpl.firePostHeal(listeners, state.uuid, regenAmount, healthValue.get());
+        }
+
+        float maxHealth = healthValue.getMax();
+        if (telemetry.isEnabled()) {
+            float health = healthValue.get();
+            // Time to full health only counts recovery from a known hit
+            telemetry.get(state.owner).recordHeal(state.uuid, regenAmount, health, maxHealth,
+                    health >= effectiveCap && state.persistedDamageTime > 0,
+                    System.currentTimeMillis() - state.persistedDamageTime);
+        }
+
+        LOGGER.atFine().log("Regenerating " + regenAmount + " HP to player " + state.username +
                 " (" + healthValue.get() + "/" + maxHealth + ")" +
                 (cfg.hasHealthCap() ? " [cap: " + cfg.getHealthCap() + "]" : ""));
     }
+
+    /**
+     * Players one world is responsible for: those it ticked last.
+     * Evictions and sweeps of them only run on that world's thread.
+     */
+    private static final class WorldPlayers {
+        // Players who left the server while in this world, evicted at the start of the next pass
+        final Queue<UUID> evictions = new ConcurrentLinkedQueue<>();
+        long lastSweepNanos = System.nanoTime();
+        // Start of the world's last pass; a world that stopped ticking no longer owns its players
+        volatile long lastPassNanos = System.nanoTime();
+    }
+
+    /**
+     * A request for the players' state, filled in by every world that was ticking.
+     */
+    private static final class ViewRequest {
+        // Worlds that stop ticking for this long are not waited for
+        private static final long STALE_WORLD_NANOS = 2_000_000_000L;
+
+        final CompletableFuture<List<RegenStateView>> future = new CompletableFuture<>();
+        // Worlds that have not added their players yet
+        final Set<Store<EntityStore>> remaining;
+        private final List<RegenStateView> views = new ArrayList<>();
+
+        ViewRequest(Set<Store<EntityStore>> worlds) {
+            this.remaining = new HashSet<>(worlds);
+        }
+
+        synchronized void add(Store<EntityStore> store, List<RegenStateView> worldViews,
+                              Map<Store<EntityStore>, WorldPlayers> worlds, long nowNanos) {
+            if (remaining.remove(store)) {
+                views.addAll(worldViews);
+            }
+            remaining.removeIf(other -> {
+                WorldPlayers world = worlds.get(other);
+                return world == null || nowNanos - world.lastPassNanos > STALE_WORLD_NANOS;
+            });
+            if (remaining.isEmpty()) {
+                future.complete(Collections.unmodifiableList(views));
+            }
+        }
+    }
+
+    /**
+     * Progress of one world through the time budget.
+     *
+     * Entities are processed in laps: each entity is processed once per lap, and a
+     * lap spans as many passes as the budget needs. Entities already processed in
+     * the current lap, and every entity once the budget is spent, are deferred.
+     * The lap acts as the resume cursor: it survives ECS reordering entities between
+     * passes, which a position in the iteration would not.
+     */
+    static final class PassBudget {
+        // Current lap; entities processed in it are marked with its number
+        private long lap = 1L;
+        private long deadline;
+        private boolean exhausted;
+        private int processed;
+        // Entities deferred this pass that were not processed in the current lap yet
+        private int pending;
+        private int deferred;
+
+        void begin(long deadline) {
+            this.deadline = deadline;
+            this.exhausted = false;
+            this.processed = 0;
+            this.pending = 0;
+            this.deferred = 0;
+        }
+
+        boolean shouldDefer(RegenState state) {
+            if (state.budgetLap == lap) {
+                deferred++;
+                return true;
+            }
+            // The first entity of a pass always runs, so every lap makes progress
+            if (exhausted || processed > 0 && System.nanoTime() > deadline) {
+                exhausted = true;
+                pending++;
+                deferred++;
+                return true;
+            }
+            state.budgetLap = lap;
+            processed++;
+            return false;
+        }
+
+        void end() {
+            // Every entity has been processed once: start a new lap
+            if (pending == 0) {
+                lap++;
+            }
+            RegenMetrics.recordBudgetPass(exhausted, deferred);
+        }
+    }
+
+    /**
+     * Smoothed tick time of one world, and the factor by which the health interval
+     * and amount are stretched while it is above AdaptiveTickMs. HP per second stays
+     * the same; under load the world just writes fewer, larger heals.
+     */
+    static final class LoadCadence {
+        // Time constant of the smoothing, so only sustained load changes the cadence
+        private static final float SMOOTHING_MS = 5_000f;
+        // Longest tick sampled, so one hitch (or a paused world) cannot dominate
+        private static final float MAX_SAMPLE_MS = 1_000f;
+        private static final float STEP = 0.25f;
+
+        private long lastPassNanos;
+        // Read by /nr status
+        volatile float smoothedTickMs;
+        volatile float stretch = 1.0f;
+
+        void update(long nowNanos, RegenSettings cfg) {
+            if (lastPassNanos != 0L) {
+                float tickMs = Math.min((nowNanos - lastPassNanos) / 1_000_000f, MAX_SAMPLE_MS);
+                float smoothed = smoothedTickMs;
+                smoothedTickMs = smoothed + (tickMs - smoothed) * (1f - (float) Math.exp(-tickMs / SMOOTHING_MS));
+            }
+            lastPassNanos = nowNanos;
+
+            float maxStretch = cfg.getAdaptiveMaxStretch();
+            float target = Math.min(smoothedTickMs / cfg.getAdaptiveTickMs(), maxStretch);
+            if (target <= 1.0f) {
+                stretch = 1.0f;
+            } else if (Math.abs(target - stretch) > STEP * 1.5f || stretch > maxStretch || target == maxStretch) {
+                // Quarter steps with a dead band, so the cadence does not flap around a step
+                // (a capped target always applies, or a gradual climb would stop short of the cap)
+                stretch = Math.max(1.0f, Math.round(target / STEP) * STEP);
+            }
+        }
+    }
+
+    /**
+     * Gets the largest interval stretch currently applied by the load-adaptive cadence
+     * over all worlds (1 when regeneration runs at its configured interval).
+     */
+    public float getCadenceStretch() {
+        float max = 1.0f;
+        for (LoadCadence cadence : cadences.values()) {
+            max = Math.max(max, cadence.stretch);
+        }
+        return max;
+    }
+
+    /**
+     * Gets the largest smoothed tick time measured by the load-adaptive cadence, in milliseconds.
+     */
+    public float getSmoothedTickMs() {
+        float max = 0f;
+        for (LoadCadence cadence : cadences.values()) {
+            max = Math.max(max, cadence.smoothedTickMs);
+        }
+        return max;
+    }
+
+    /**
+     * Advances an entity's health interval by one tick.
+     * Shared with {@link TraceReplay} so replays run the exact same accumulator,
+     * damage delay check and passive amount as the tick.
+     *
+     * @param key the entity's {@link DamageTracker} key
+     * @param stretch interval stretch of the load-adaptive cadence
+     * @param now current time in milliseconds, or 0 to read the clock only when due
+     * @return {@link #NOT_DUE} if no interval elapsed, otherwise the passive heal before
+     *         zones and pause conditions (0 while the damage delay blocks it)
+     */
+    static float stepHealth(RegenSettings cfg, RegenState state, Object key, float dt, float stretch, long now) {
+        float accumulated = state.timeAccumulator + dt;
+        float intervalSec = cfg.getIntervalSeconds() * stretch;
+        if (accumulated < intervalSec) {
+            state.timeAccumulator = accumulated;
+            return NOT_DUE;
+        }
+
+        // Reset accumulator when due (keep excess for precision)
+        state.timeAccumulator = accumulated - intervalSec;
+        state.damageBlocked = !DamageTracker.canRegenerate(key, now != 0L ? now : System.currentTimeMillis());
+        return state.damageBlocked ? 0f : cfg.getAmountHP() * stretch;
+    }
+
+    /**
+     * Caps a heal so health does not go above the effective cap.
+     * Shared with {@link TraceReplay} so replays use the exact same arithmetic.
+     *
+     * @return the amount to add, 0 if already at the cap
+     */
+    static float capHeal(float currentHealth, float effectiveCap, float regenAmount) {
+        if (currentHealth >= effectiveCap) {
+            return 0f;
+        }
+        return currentHealth + regenAmount > effectiveCap ? effectiveCap - currentHealth : regenAmount;
+    }
+
+    /**
+     * Checks whether a heal is kept back to be written together with later ones.
+     *
+     * @param coalesceHP configured HealCoalesceHP, 0 to write every heal
+     * @param total heal waiting to be written, including this interval's
+     * @param healthAfter health once this interval's heal is counted
+     * @return true while the total is below HealCoalesceHP and health below the cap
+     */
+    static boolean shouldCoalesce(float coalesceHP, float total, float healthAfter, float effectiveCap) {
+        return coalesceHP > 0 && total < coalesceHP && healthAfter < effectiveCap;
+    }
+
+    /**
+     * Applies every configured stat whose interval has elapsed, from the precompiled stat table.
+     */
+    private void regenerateStats(RegenSettings cfg, RegenState state, EntityStatMap statMap, long sinceDamageMs) {
+        int[] statIndices = cfg.getStatIndices();
+        float[] statAccumulators = state.statAccumulators;
+        for (int i = 0; i < statIndices.length; i++) {
+            float interval = cfg.getStatInterval(i);
+            if (statAccumulators[i] < interval) {
+                continue;
+            }
+            statAccumulators[i] -= interval;
+
+            int statIndex = statIndices[i];
+            if (statIndex == Integer.MIN_VALUE || sinceDamageMs < cfg.getStatDelayMs(i)) {
+                continue;
+            }
+            EntityStatValue value = statMap.get(statIndex);
+            if (value == null) {
+                continue;
+            }
+            float current = value.get();
+            float cap = cfg.getEffectiveStatCap(i, value.getMax());
+            if (current >= cap) {
+                continue;
+            }
+            statMap.addStatValue(statIndex, Math.min(cfg.getStatAmount(i), cap - current));
+        }
+    }
 }
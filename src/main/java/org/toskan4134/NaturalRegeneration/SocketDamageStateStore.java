@@ -0,0 +1,216 @@
+package org.toskan4134.NaturalRegeneration;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DamageStateStore} shared by several server processes through a
+ * {@link DamageStateServer}.
+ *
+ * Published states are coalesced per player and sent in one batch every
+ * {@value #BATCH_INTERVAL_MS} ms. All network I/O happens on a single background
+ * thread that owns the connection and reconnects on failure; while the server
+ * is unreachable, batches are kept and fetches complete with no state.
+ */
+public class SocketDamageStateStore implements DamageStateStore {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private static final long BATCH_INTERVAL_MS = 250L;
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+    private static final int READ_TIMEOUT_MS = 5000;
+    private static final long RECONNECT_BACKOFF_MS = 5000L;
+
+    private final String host;
+    private final int port;
+
+    // Latest unsent state per player
+    private final Map<UUID, DamageState> pending = new ConcurrentHashMap<>();
+
+    @Nullable
+    private ScheduledExecutorService executor;
+
+    // Only accessed from the I/O thread
+    @Nullable
+    private Socket socket;
+    @Nullable
+    private DataInputStream in;
+    @Nullable
+    private DataOutputStream out;
+    private long nextConnectAttempt = 0L;
+
+    public SocketDamageStateStore(@Nonnull String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "NaturalRegeneration-DamageStateSync");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::flushSafely, BATCH_INTERVAL_MS, BATCH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        LOGGER.atInfo().log("Sharing damage state through " + host + ":" + port);
+    }
+
+    @Override
+    public void publish(@Nonnull UUID uuid, long lastDamageTime, long regenBlockedUntil) {
+        pending.merge(uuid, new DamageState(lastDamageTime, regenBlockedUntil), DamageState::merge);
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<DamageState> fetch(@Nonnull UUID uuid) {
+        CompletableFuture<DamageState> future = new CompletableFuture<>();
+        ScheduledExecutorService io = executor;
+        if (io == null) {
+            future.complete(null);
+            return future;
+        }
+        io.execute(() -> {
+            try {
+                // Send our own changes first, so a fetch never reads older state than we published
+                flush();
+                if (!ensureConnected()) {
+                    future.complete(null);
+                    return;
+                }
+                out.writeByte(DamageStateServer.OP_GET);
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+                out.flush();
+                DamageState state = in.readBoolean() ? new DamageState(in.readLong(), in.readLong()) : null;
+                future.complete(state);
+            } catch (IOException e) {
+                disconnect("fetch failed: " + e.getMessage());
+                future.complete(null);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService io = executor;
+        if (io == null) {
+            return;
+        }
+        executor = null;
+        io.shutdown();
+        try {
+            io.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // The executor is gone, so it is safe to finish on this thread
+        flushSafely();
+        disconnect(null);
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (IOException e) {
+            disconnect("sync failed: " + e.getMessage());
+        }
+    }
+
+    private void flush() throws IOException {
+        if (pending.isEmpty() || !ensureConnected()) {
+            return;
+        }
+        List<Map.Entry<UUID, DamageState>> batch = new ArrayList<>(pending.size());
+        for (Map.Entry<UUID, DamageState> entry : pending.entrySet()) {
+            // Only take it if no newer state was published meanwhile
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.add(entry);
+            }
+        }
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                // Split into PUTs the server accepts
+                if (i % DamageStateServer.MAX_PUT_COUNT == 0) {
+                    out.writeByte(DamageStateServer.OP_PUT);
+                    out.writeInt(Math.min(DamageStateServer.MAX_PUT_COUNT, batch.size() - i));
+                }
+                Map.Entry<UUID, DamageState> entry = batch.get(i);
+                UUID uuid = entry.getKey();
+                DamageState state = entry.getValue();
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+                out.writeLong(state.getLastDamageTime());
+                out.writeLong(state.getRegenBlockedUntil());
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Keep the batch for the next connection
+            for (Map.Entry<UUID, DamageState> entry : batch) {
+                pending.merge(entry.getKey(), entry.getValue(), DamageState::merge);
+            }
+            throw e;
+        }
+        LOGGER.atFine().log("Synced " + batch.size() + " damage states");
+    }
+
+    private boolean ensureConnected() {
+        if (socket != null) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now < nextConnectAttempt) {
+            return false;
+        }
+        try {
+            Socket connection = new Socket();
+            connection.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            connection.setSoTimeout(READ_TIMEOUT_MS);
+            connection.setTcpNoDelay(true);
+            socket = connection;
+            in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+            LOGGER.atInfo().log("Connected to damage state server " + host + ":" + port);
+            return true;
+        } catch (IOException e) {
+            nextConnectAttempt = now + RECONNECT_BACKOFF_MS;
+            LOGGER.atWarning().log("Cannot reach damage state server " + host + ":" + port + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void disconnect(@Nullable String reason) {
+        if (reason != null) {
+            LOGGER.atWarning().log("Damage state server " + reason);
+        }
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+        socket = null;
+        in = null;
+        out = null;
+        nextConnectAttempt = System.currentTimeMillis() + RECONNECT_BACKOFF_MS;
+    }
+}
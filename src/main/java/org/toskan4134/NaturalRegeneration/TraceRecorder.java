@@ -0,0 +1,330 @@
+package org.toskan4134.NaturalRegeneration;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional recorder of the inputs and outcomes of health regeneration, so they
+ * can be replayed offline with {@link TraceReplay} to check that a change to the
+ * tick system or the damage tracker still heals exactly the same.
+ *
+ * The trace is an append-only binary file: a header followed by tagged records
+ *   SETTINGS | amount HP (4) | interval (4) | health cap (UTF)
+ *   PASS     | time ms (8) | dt (4)
+ *   DAMAGE   | entity (4) | time ms (8) | amount (4) | delay ms (8)
+ *   STATE    | entity (4) | last damage ms (8) | blocked until ms (8) | accumulator (4)
+ *   STEP     | entity (4) | dt (4) | interval stretch (4) | flags (1: due, sources, paused) [ | time ms (8) if due ]
+ *   HEAL     | entity (4) | health (4) | max health (4) | applied (4) | flags (1)
+ *
+ * Entities are written as ids numbered per trace, one per player UUID or entity Ref.
+ * Each STEP carries the cadence stretch of its own world, since worlds stretch independently.
+ * Records are written into a buffer under a short lock; full buffers are
+ * appended to the file by a background thread.
+ */
+public class TraceRecorder {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    static final int MAGIC = 0x4E525432; // "NRT2"
+
+    static final byte SETTINGS = 1;
+    static final byte PASS = 2;
+    static final byte DAMAGE = 3;
+    static final byte STATE = 4;
+    static final byte STEP = 5;
+    static final byte HEAL = 6;
+
+    // STEP flags
+    static final int FLAG_DUE = 1;
+    static final int FLAG_SOURCES = 2;
+    // A pause condition blocked passive regeneration for this interval
+    static final int FLAG_PAUSED = 4;
+    // HEAL flags: heal sources or listeners changed the amount, so it cannot be replayed
+    static final int FLAG_EXTERNAL = 1;
+
+    private static final int BUFFER_BYTES = 256 * 1024;
+    private static final int MAX_RECORD_BYTES = 1024;
+
+    private final Path directory;
+
+    private volatile boolean recording;
+
+    // Incremented for every trace, so each entity's initial state is recorded once per trace
+    private volatile int generation;
+
+    // Guarded by this
+    @Nullable
+    private ByteBuffer buffer;
+    @Nullable
+    private FileChannel channel;
+    @Nullable
+    private ExecutorService writer;
+    @Nullable
+    private Path file;
+    @Nullable
+    private RegenSettings lastSettings;
+    private long records;
+    // Trace id of each player UUID or entity Ref seen in the current trace
+    private final Map<Object, Integer> traceIds = new HashMap<>();
+
+    // Buffers already written, reused by the recording threads
+    private final Queue<ByteBuffer> spareBuffers = new ConcurrentLinkedQueue<>();
+
+    public TraceRecorder(@Nonnull Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Checks if a trace is being recorded. Callers check this before building a record.
+     */
+    public boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Gets the number of the current trace. Entities whose state was recorded for an
+     * older trace must record it again with {@link #recordState}.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Gets the file being recorded, or null when not recording.
+     */
+    @Nullable
+    public synchronized Path getFile() {
+        return file;
+    }
+
+    /**
+     * Gets the number of records written to the current trace.
+     */
+    public synchronized long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Starts recording to a new file in the traces directory.
+     *
+     * @return the trace file
+     * @throws IOException if the file cannot be created
+     */
+    @Nonnull
+    public synchronized Path start() throws IOException {
+        if (recording) {
+            return file;
+        }
+        Files.createDirectories(directory);
+        Path target = directory.resolve("trace-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".nrt");
+        channel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "NaturalRegeneration-TraceWriter");
+            t.setDaemon(true);
+            return t;
+        });
+        file = target;
+        records = 0L;
+        lastSettings = null;
+        traceIds.clear();
+        buffer = takeBuffer();
+        buffer.putInt(MAGIC);
+        generation++;
+        recording = true;
+
+        LOGGER.atInfo().log("Recording regeneration trace to " + target);
+        return target;
+    }
+
+    /**
+     * Stops recording, writes the remaining records and closes the file.
+     *
+     * @return the number of records written, or -1 if no trace was being recorded
+     */
+    public synchronized long stop() {
+        if (!recording) {
+            return -1L;
+        }
+        recording = false;
+        handOff();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.atWarning().log("Failed to close trace file: " + e.getMessage());
+        }
+
+        LOGGER.atInfo().log("Stopped regeneration trace " + file + " (" + records + " records)");
+        long written = records;
+        writer = null;
+        channel = null;
+        buffer = null;
+        file = null;
+        lastSettings = null;
+        traceIds.clear();
+        spareBuffers.clear();
+        return written;
+    }
+
+    /**
+     * Records the start of a tick pass.
+     */
+    public synchronized void recordPass(long now, float dt) {
+        if (!recording) {
+            return;
+        }
+        reserve();
+        buffer.put(PASS).putLong(now).putFloat(dt);
+        records++;
+    }
+
+    /**
+     * Records a damage event as it is applied to the {@link DamageTracker}.
+     */
+    public synchronized void recordDamage(@Nonnull Object key, long timestamp, float damageAmount, long delayMs) {
+        if (!recording) {
+            return;
+        }
+        reserve();
+        buffer.put(DAMAGE).putInt(traceId(key)).putLong(timestamp).putFloat(damageAmount).putLong(delayMs);
+        records++;
+    }
+
+    /**
+     * Records the damage state and accumulator of an entity, when it is first seen
+     * in a trace or restored from the snapshot.
+     */
+    public synchronized void recordState(@Nonnull Object key, long lastDamageTime, long regenBlockedUntil,
+                                           float timeAccumulator) {
+        if (!recording) {
+            return;
+        }
+        reserve();
+        buffer.put(STATE).putInt(traceId(key)).putLong(lastDamageTime).putLong(regenBlockedUntil)
+                .putFloat(timeAccumulator);
+        records++;
+    }
+
+    /**
+     * Records one entity tick of the health accumulator.
+     *
+     * @param cfg the settings the tick used
+     * @param key Player UUID or NPC key
+     * @param dt the tick's delta time
+     * @param stretch interval stretch of the entity's world
+     * @param healthDue true if a health interval elapsed
+     * @param hasSources true if the entity has active timed heal sources
+     * @param paused true if a pause condition blocked passive regeneration
+     * @param now the time used for the damage delay check (only written when due)
+     */
+    public synchronized void recordStep(@Nonnull RegenSettings cfg, @Nonnull Object key, float dt, float stretch,
+                                        boolean healthDue, boolean hasSources, boolean paused, long now) {
+        if (!recording) {
+            return;
+        }
+        reserve();
+        if (cfg != lastSettings) {
+            writeSettings(cfg);
+        }
+        int flags = (healthDue ? FLAG_DUE : 0) | (hasSources ? FLAG_SOURCES : 0) | (paused ? FLAG_PAUSED : 0);
+        buffer.put(STEP).putInt(traceId(key)).putFloat(dt).putFloat(stretch).put((byte) flags);
+        if (healthDue) {
+            buffer.putLong(now);
+        }
+        records++;
+    }
+
+    /**
+     * Records the outcome of a heal once the entity's health has been read.
+     *
+     * @param key Player UUID or NPC key
+     * @param health health before the heal
+     * @param maxHealth maximum health
+     * @param applied health added (0 if none)
+     * @param external true if heal sources or listeners changed the amount
+     */
+    public synchronized void recordHeal(@Nonnull Object key, float health, float maxHealth, float applied,
+                                        boolean external) {
+        if (!recording) {
+            return;
+        }
+        reserve();
+        buffer.put(HEAL).putInt(traceId(key)).putFloat(health).putFloat(maxHealth).putFloat(applied)
+                .put((byte) (external ? FLAG_EXTERNAL : 0));
+        records++;
+    }
+
+    private int traceId(Object key) {
+        Integer id = traceIds.get(key);
+        if (id == null) {
+            id = traceIds.size();
+            traceIds.put(key, id);
+        }
+        return id;
+    }
+
+    private void writeSettings(RegenSettings cfg) {
+        byte[] cap = cfg.getHealthCap().getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(cap.length, MAX_RECORD_BYTES - 16);
+        buffer.put(SETTINGS).putFloat(cfg.getAmountHP()).putFloat(cfg.getIntervalSeconds())
+                .putShort((short) length).put(cap, 0, length);
+        lastSettings = cfg;
+        records++;
+    }
+
+    /**
+     * Makes room for the largest record, handing a full buffer to the writer.
+     */
+    private void reserve() {
+        if (buffer.remaining() < MAX_RECORD_BYTES * 2) {
+            handOff();
+            buffer = takeBuffer();
+        }
+    }
+
+    private void handOff() {
+        ByteBuffer full = buffer;
+        full.flip();
+        FileChannel target = channel;
+        writer.execute(() -> {
+            try {
+                while (full.hasRemaining()) {
+                    target.write(full);
+                }
+            } catch (IOException e) {
+                LOGGER.atWarning().log("Failed to write trace: " + e.getMessage());
+            }
+            full.clear();
+            spareBuffers.add(full);
+        });
+    }
+
+    private ByteBuffer takeBuffer() {
+        ByteBuffer spare = spareBuffers.poll();
+        return spare != null ? spare : ByteBuffer.allocateDirect(BUFFER_BYTES);
+    }
+}
@@ -0,0 +1,202 @@
+package org.toskan4134.NaturalRegeneration;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Offline replay of a trace written by {@link TraceRecorder}.
+ *
+ * Feeds the recorded damage events through the {@link DamageEventBuffer} and
+ * {@link DamageTracker}, re-runs the tick system's own health step and heal cap for
+ * every recorded entity tick, and checks that each heal matches the recorded one.
+ * Heals changed by timed sources or listeners are counted but not checked.
+ *
+ * Usage (with the server jar on the classpath):
+ *   java -cp NaturalRegeneration.jar:HytaleServer.jar org.toskan4134.NaturalRegeneration.TraceReplay trace.nrt
+ *
+ * Exits with status 1 if any outcome differs.
+ */
+public final class TraceReplay {
+
+    private static final int MAX_REPORTED_MISMATCHES = 20;
+
+    private final DamageEventBuffer damageEvents = new DamageEventBuffer();
+    private final Map<Integer, Entity> entities = new HashMap<>();
+    private RegenSettings settings;
+
+    private long passes;
+    private long steps;
+    private long heals;
+    private long externalHeals;
+    private long mismatches;
+    private double recordedHealed;
+    private double replayedHealed;
+
+    private TraceReplay() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: TraceReplay <trace.nrt>");
+            System.exit(2);
+        }
+        TraceReplay replay = new TraceReplay();
+        long start = System.nanoTime();
+        replay.run(Paths.get(args[0]));
+        long elapsedNs = System.nanoTime() - start;
+
+        System.out.println("Passes: " + replay.passes + ", entity ticks: " + replay.steps
+                + ", heals: " + replay.heals + " (" + replay.externalHeals + " from sources/listeners, not checked)");
+        System.out.println("HP healed: recorded " + replay.recordedHealed + ", replayed " + replay.replayedHealed);
+        System.out.println("Replay time: " + elapsedNs / 1_000_000 + " ms ("
+                + (replay.steps > 0 ? elapsedNs / replay.steps : 0) + " ns per entity tick)");
+        if (replay.mismatches > 0) {
+            System.out.println("FAILED: " + replay.mismatches + " mismatches");
+            System.exit(1);
+        }
+        System.out.println("OK: all outcomes identical");
+    }
+
+    private void run(@Nonnull Path file) throws IOException {
+        DamageTracker.clearAll();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != TraceRecorder.MAGIC) {
+                throw new IOException("Not a regeneration trace (or recorded by an older version): " + file);
+            }
+            while (true) {
+                int type = in.read();
+                if (type < 0) {
+                    break;
+                }
+                try {
+                    readRecord((byte) type, in);
+                } catch (EOFException e) {
+                    // Trace cut short (server stopped while recording)
+                    break;
+                }
+            }
+        }
+    }
+
+    private void readRecord(byte type, DataInputStream in) throws IOException {
+        switch (type) {
+            case TraceRecorder.SETTINGS: {
+                RegenConfig config = new RegenConfig();
+                config.setAmountHP(in.readFloat());
+                config.setIntervalSeconds(in.readFloat());
+                byte[] cap = new byte[in.readShort()];
+                in.readFully(cap);
+                config.setHealthCap(new String(cap, StandardCharsets.UTF_8));
+                settings = RegenSettings.compile(config);
+                break;
+            }
+            case TraceRecorder.PASS:
+                in.readLong();
+                in.readFloat();
+                damageEvents.drain();
+                passes++;
+                break;
+            case TraceRecorder.DAMAGE:
+                damageEvents.append(in.readInt(), in.readLong(), in.readFloat(), in.readLong());
+                break;
+            case TraceRecorder.STATE: {
+                int id = in.readInt();
+                DamageTracker.restore(id, in.readLong(), in.readLong());
+                entity(id).state.timeAccumulator = in.readFloat();
+                break;
+            }
+            case TraceRecorder.STEP:
+                step(in.readInt(), in.readFloat(), in.readFloat(), in.readByte(), in);
+                break;
+            case TraceRecorder.HEAL:
+                heal(in.readInt(), in.readFloat(), in.readFloat(), in.readFloat(), in.readByte());
+                break;
+            default:
+                throw new IOException("Corrupt trace: unknown record type " + type);
+        }
+    }
+
+    private void step(int id, float dt, float stretch, byte flags, DataInputStream in) throws IOException {
+        boolean recordedDue = (flags & TraceRecorder.FLAG_DUE) != 0;
+        long now = recordedDue ? in.readLong() : 0L;
+        damageEvents.drain();
+        steps++;
+
+        Entity entity = entity(id);
+        if (entity.pendingAmount > 0) {
+            mismatch("entity " + id + ": expected a heal of " + entity.pendingAmount + " that never happened");
+        }
+        entity.pendingAmount = 0f;
+
+        float passiveAmount = RegenerationTickSystem.stepHealth(settings, entity.state, id, dt, stretch, now);
+        boolean healthDue = passiveAmount != RegenerationTickSystem.NOT_DUE;
+
+        if (healthDue != recordedDue) {
+            mismatch("entity " + id + ": interval due " + healthDue + ", recorded " + recordedDue);
+            return;
+        }
+        // With timed sources the heal is not predictable, the HEAL record is flagged as external
+        boolean hasSources = (flags & TraceRecorder.FLAG_SOURCES) != 0;
+        // Pause conditions read stats that are not traced, so the recorded outcome is used
+        boolean paused = (flags & TraceRecorder.FLAG_PAUSED) != 0;
+        if (healthDue && !hasSources && !paused) {
+            entity.pendingAmount = passiveAmount;
+        }
+    }
+
+    private void heal(int id, float health, float maxHealth, float applied, byte flags) {
+        heals++;
+        recordedHealed += applied;
+        Entity entity = entity(id);
+        float amount = entity.pendingAmount;
+        entity.pendingAmount = 0f;
+
+        if ((flags & TraceRecorder.FLAG_EXTERNAL) != 0) {
+            externalHeals++;
+            replayedHealed += applied;
+            return;
+        }
+        if (amount <= 0) {
+            mismatch("entity " + id + ": healed " + applied + " while regeneration was blocked");
+            return;
+        }
+        float expected = RegenerationTickSystem.capHeal(health, settings.getEffectiveHealthCap(maxHealth), amount);
+        replayedHealed += expected;
+        if (Float.compare(expected, applied) != 0) {
+            mismatch("entity " + id + " at " + health + "/" + maxHealth + ": healed " + expected
+                    + ", recorded " + applied);
+        }
+    }
+
+    private Entity entity(int id) {
+        return entities.computeIfAbsent(id, Entity::new);
+    }
+
+    private void mismatch(String message) {
+        mismatches++;
+        if (mismatches <= MAX_REPORTED_MISMATCHES) {
+            System.out.println("Mismatch: " + message);
+        }
+    }
+
+    private static final class Entity {
+        // Tick state of the recorded entity, keyed by its trace id in the DamageTracker
+        final RegenState state;
+        // Passive heal expected from the last due tick, until its HEAL record is read
+        float pendingAmount;
+
+        Entity(int id) {
+            this.state = new RegenState(new UUID(0L, id), null);
+        }
+    }
+}
@@ -7,7 +7,6 @@ import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
-import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -40,19 +39,6 @@ public class VersionChecker {
         this.currentVersion = currentVersion;
     }
 
-    /**
-     * Checks for updates asynchronously.
-     * Checks both GitHub and CurseForge, then compares to find the newest version.
-     *
-     * @return CompletableFuture that completes when the check is done
-     */
-    public CompletableFuture<VersionChecker> checkForUpdatesAsync() {
-        return CompletableFuture.supplyAsync(() -> {
-            checkForUpdates();
-            return this;
-        });
-    }
-
     /**
      * Checks for updates synchronously.
      * Checks both GitHub and CurseForge, then compares to find the newest version.
@@ -179,28 +165,38 @@ public class VersionChecker {
      * @param urlString the URL to fetch
      */
     private String fetchUrl(String urlString) throws Exception {
-        URL url = URI.create(urlString).toURL();
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("GET");
-        connection.setConnectTimeout(TIMEOUT_MS);
-        connection.setReadTimeout(TIMEOUT_MS);
-        connection.setRequestProperty("User-Agent", "NaturalRegeneration-Hytale/" + currentVersion);
-        connection.setRequestProperty("Accept", "application/json");
-
-        int responseCode = connection.getResponseCode();
-        if (responseCode != 200) {
-            LOGGER.atFine().log("HTTP " + responseCode + " from " + urlString);
-            return null;
-        }
+        RegenJfr.VersionFetchEvent event = new RegenJfr.VersionFetchEvent();
+        event.begin();
+        event.url = urlString;
+        try {
+            URL url = URI.create(urlString).toURL();
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("GET");
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setRequestProperty("User-Agent", "NaturalRegeneration-Hytale/" + currentVersion);
+            connection.setRequestProperty("Accept", "application/json");
+
+            int responseCode = connection.getResponseCode();
+            event.status = responseCode;
+            if (responseCode != 200) {
+                LOGGER.atFine().log("HTTP " + responseCode + " from " + urlString);
+                return null;
+            }
 
-        StringBuilder response = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
+            StringBuilder response = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    response.append(line);
+                }
             }
+            event.bytes = response.length();
+            return response.toString();
+        } finally {
+            // Failed fetches are recorded too, with status 0
+            event.commit();
         }
-        return response.toString();
     }
 
     /**
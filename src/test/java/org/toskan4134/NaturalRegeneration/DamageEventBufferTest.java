@@ -0,0 +1,104 @@
+package org.toskan4134.NaturalRegeneration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Same-tick merging, growth and shrinking of the {@link DamageEventBuffer}, and what
+ * its drain writes to the {@link DamageTracker}.
+ */
+class DamageEventBufferTest {
+
+    private static final long DELAY_MS = 3_000L;
+
+    // Start of a stored tick, so hits a few milliseconds later land in the same tick
+    private final long tick = System.currentTimeMillis() / DamageTracker.TICK_MS * DamageTracker.TICK_MS;
+
+    @AfterEach
+    void clearTracker() {
+        DamageTracker.clearAll();
+    }
+
+    @Test
+    void sameTickHitIsMergedWhenItCannotExtendTheDelay() {
+        DamageEventBuffer buffer = new DamageEventBuffer();
+        UUID player = UUID.randomUUID();
+
+        buffer.append(player, tick, 5f, DELAY_MS);
+        assertTrue(buffer.mergeSameTick(player, tick + 1, 2f, DELAY_MS));
+        assertEquals(1, buffer.getPendingCount());
+        assertEquals(1L, buffer.getMergedHits());
+
+        // A longer delay, a later tick or another player needs its own event
+        assertFalse(buffer.mergeSameTick(player, tick + 1, 2f, DELAY_MS * 2));
+        assertFalse(buffer.mergeSameTick(player, tick + DamageTracker.TICK_MS, 2f, DELAY_MS));
+        assertFalse(buffer.mergeSameTick(UUID.randomUUID(), tick + 1, 2f, DELAY_MS));
+        assertEquals(1L, buffer.getMergedHits());
+    }
+
+    @Test
+    void drainWritesTheDamageRecord() {
+        DamageEventBuffer buffer = new DamageEventBuffer();
+        UUID player = UUID.randomUUID();
+
+        buffer.append(player, tick, 5f, DELAY_MS);
+        assertTrue(buffer.mergeSameTick(player, tick + 1, 2f, DELAY_MS));
+        assertEquals(1, buffer.drain());
+        assertEquals(0, buffer.getPendingCount());
+
+        assertNotNull(DamageTracker.getRecord(player));
+        assertFalse(DamageTracker.canRegenerate(player, tick + DELAY_MS - 1));
+        assertTrue(DamageTracker.canRegenerate(player, tick + DELAY_MS + DamageTracker.TICK_MS));
+
+        // The drain cleared the key table: nothing is left to merge into
+        assertFalse(buffer.mergeSameTick(player, tick + 2, 1f, DELAY_MS));
+    }
+
+    @Test
+    void zeroDelayDamageIsNotRecorded() {
+        DamageEventBuffer buffer = new DamageEventBuffer();
+        UUID player = UUID.randomUUID();
+
+        buffer.append(player, tick, 1f, 0L);
+        assertEquals(1, buffer.drain());
+
+        assertNull(DamageTracker.getRecord(player));
+        assertEquals(1L, buffer.getSkippedWrites());
+    }
+
+    @Test
+    void burstGrowsTheBufferAndShrinksAfterwards() {
+        DamageEventBuffer buffer = new DamageEventBuffer(8, null, null, null, null);
+        UUID[] players = new UUID[20];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = UUID.randomUUID();
+            buffer.append(players[i], tick, 1f, DELAY_MS);
+        }
+        assertEquals(20, buffer.getPendingCount());
+        assertEquals(32, buffer.getCapacity());
+        assertEquals(2L, buffer.getGrowths());
+
+        // Events appended before the growth can still be merged into
+        assertTrue(buffer.mergeSameTick(players[3], tick + 1, 1f, DELAY_MS));
+
+        // The burst used more than a quarter of the grown buffer: keep it for now
+        assertEquals(20, buffer.drain());
+        assertEquals(32, buffer.getCapacity());
+        for (UUID player : players) {
+            assertNotNull(DamageTracker.getRecord(player));
+        }
+
+        // A quiet drain gives the arrays back
+        buffer.append(players[0], tick + DamageTracker.TICK_MS, 1f, DELAY_MS);
+        assertEquals(1, buffer.drain());
+        assertEquals(8, buffer.getCapacity());
+    }
+}
@@ -0,0 +1,109 @@
+package org.toskan4134.NaturalRegeneration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Damage state sharing between two {@link SocketDamageStateStore}s, as two game
+ * servers would, through a {@link DamageStateServer} on a free loopback port.
+ */
+class DamageStateServerTest {
+
+    private static final long FETCH_TIMEOUT_SECONDS = 10L;
+
+    private DamageStateServer server;
+    private SocketDamageStateStore first;
+    private SocketDamageStateStore second;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new DamageStateServer(InetAddress.getLoopbackAddress(), 0);
+        first = new SocketDamageStateStore("127.0.0.1", server.getPort());
+        second = new SocketDamageStateStore("127.0.0.1", server.getPort());
+        first.start();
+        second.start();
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        first.close();
+        second.close();
+        server.close();
+    }
+
+    @Test
+    void unknownPlayerHasNoState() throws Exception {
+        assertNull(fetch(second, UUID.randomUUID()));
+    }
+
+    @Test
+    void stateIsFetchedByTheOtherServer() throws Exception {
+        long now = System.currentTimeMillis();
+        UUID player = UUID.randomUUID();
+
+        // A fetch sends the store's own pending states first
+        first.publish(player, now, now + 5_000L);
+        fetch(first, player);
+
+        DamageStateStore.DamageState state = fetch(second, player);
+        assertNotNull(state);
+        assertEquals(now, state.getLastDamageTime());
+        assertEquals(now + 5_000L, state.getRegenBlockedUntil());
+    }
+
+    @Test
+    void shorterDelayNeverCancelsLongerOne() throws Exception {
+        long now = System.currentTimeMillis();
+        UUID player = UUID.randomUUID();
+        first.publish(player, now, now + 5_000L);
+        fetch(first, player);
+
+        second.publish(player, now + 1_000L, now + 2_000L);
+        fetch(second, player);
+
+        DamageStateStore.DamageState state = fetch(first, player);
+        assertNotNull(state);
+        assertEquals(now + 1_000L, state.getLastDamageTime());
+        assertEquals(now + 5_000L, state.getRegenBlockedUntil());
+    }
+
+    @Test
+    void invalidCountDisconnectsTheClient() throws Exception {
+        for (int count : new int[] {-1, DamageStateServer.MAX_PUT_COUNT + 1}) {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+                socket.setSoTimeout(5_000);
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                out.writeByte(DamageStateServer.OP_PUT);
+                out.writeInt(count);
+                out.flush();
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                assertThrows(EOFException.class, in::readByte);
+            }
+        }
+
+        // Other clients are still served
+        UUID player = UUID.randomUUID();
+        long now = System.currentTimeMillis();
+        first.publish(player, now, now + 1_000L);
+        assertNotNull(fetch(first, player));
+    }
+
+    private static DamageStateStore.DamageState fetch(DamageStateStore store, UUID player) throws Exception {
+        return store.fetch(player).get(FETCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
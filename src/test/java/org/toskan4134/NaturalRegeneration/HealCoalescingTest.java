@@ -0,0 +1,133 @@
+package org.toskan4134.NaturalRegeneration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Heal coalescing with the tick's own helpers: small heals are held back until they
+ * add up to HealCoalesceHP or reach the cap, without changing the HP healed.
+ */
+class HealCoalescingTest {
+
+    private static final float MAX_HEALTH = 100f;
+
+    private final UUID player = UUID.randomUUID();
+    private final RegenState state = new RegenState(player, "player");
+
+    private float health;
+    private int writes;
+
+    @AfterEach
+    void clearTracker() {
+        DamageTracker.clearAll();
+    }
+
+    @Test
+    void smallHealsAreWrittenTogether() {
+        RegenSettings cfg = settings(0.5f, 2f);
+        health = 10f;
+        run(cfg, 20);
+
+        assertEquals(5, writes);
+        assertEquals(20f, health, 0.001f);
+        assertEquals(0f, state.pendingHeal);
+    }
+
+    @Test
+    void reachingTheCapWritesEarly() {
+        RegenSettings cfg = settings(0.5f, 2f);
+        health = 99f;
+        run(cfg, 5);
+
+        // 0.5 held back, then the heal that reaches 100 writes both
+        assertEquals(1, writes);
+        assertEquals(MAX_HEALTH, health);
+        assertEquals(0f, state.pendingHeal);
+    }
+
+    @Test
+    void zeroCoalesceWritesEveryHeal() {
+        RegenSettings cfg = settings(0.5f, 0f);
+        health = 10f;
+        run(cfg, 6);
+
+        assertEquals(6, writes);
+        assertEquals(13f, health, 0.001f);
+    }
+
+    @Test
+    void damageBlocksThePassiveHeal() {
+        RegenSettings cfg = settings(0.5f, 2f);
+        long now = System.currentTimeMillis();
+        DamageTracker.onDamageReceived(player, 5f, now, 10_000L);
+
+        assertEquals(0f, RegenerationTickSystem.stepHealth(cfg, state, player, 1f, 1f, now));
+        assertTrue(state.damageBlocked);
+    }
+
+    @Test
+    void intervalKeepsTheExcessTime() {
+        RegenSettings cfg = settings(0.5f, 2f);
+        long now = System.currentTimeMillis();
+
+        assertEquals(RegenerationTickSystem.NOT_DUE, RegenerationTickSystem.stepHealth(cfg, state, player, 0.4f, 1f, now));
+        assertEquals(RegenerationTickSystem.NOT_DUE, RegenerationTickSystem.stepHealth(cfg, state, player, 0.4f, 1f, now));
+        assertEquals(0.5f, RegenerationTickSystem.stepHealth(cfg, state, player, 0.4f, 1f, now));
+        assertEquals(0.2f, state.timeAccumulator, 0.0001f);
+        assertFalse(state.damageBlocked);
+
+        // A stretched cadence heals more, less often
+        state.timeAccumulator = 0f;
+        assertEquals(RegenerationTickSystem.NOT_DUE, RegenerationTickSystem.stepHealth(cfg, state, player, 1f, 2f, now));
+        assertEquals(1.0f, RegenerationTickSystem.stepHealth(cfg, state, player, 1f, 2f, now));
+    }
+
+    private static RegenSettings settings(float amountHP, float coalesceHP) {
+        RegenConfig config = new RegenConfig();
+        config.setAmountHP(amountHP);
+        config.setIntervalSeconds(1f);
+        config.setHealCoalesceHP(coalesceHP);
+        return RegenSettings.compile(config);
+    }
+
+    /**
+     * Runs one-second passes through the same steps as the tick's health regeneration.
+     */
+    private void run(RegenSettings cfg, int passes) {
+        float cap = cfg.getEffectiveHealthCap(MAX_HEALTH);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < passes; i++) {
+            float amount = RegenerationTickSystem.stepHealth(cfg, state, player, 1f, 1f, now);
+            if (amount == RegenerationTickSystem.NOT_DUE) {
+                continue;
+            }
+            float pending = state.pendingHeal;
+            float current = health + pending;
+            if (current >= cap) {
+                write(RegenerationTickSystem.capHeal(health, cap, pending));
+                continue;
+            }
+            amount = RegenerationTickSystem.capHeal(current, cap, amount);
+            float total = pending + amount;
+            if (RegenerationTickSystem.shouldCoalesce(cfg.getHealCoalesceHP(), total, current + amount, cap)) {
+                state.pendingHeal = total;
+            } else {
+                write(total);
+            }
+        }
+    }
+
+    private void write(float amount) {
+        state.pendingHeal = 0f;
+        if (amount > 0) {
+            health += amount;
+            writes++;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.toskan4134.NaturalRegeneration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * How the load-adaptive cadence follows a world's smoothed tick time, with the default
+ * AdaptiveTickMs of 50 and AdaptiveMaxStretch of 4.
+ */
+class LoadCadenceTest {
+
+    private final RegenSettings cfg = RegenSettings.compile(new RegenConfig());
+    private final RegenerationTickSystem.LoadCadence cadence = new RegenerationTickSystem.LoadCadence();
+    private long now = 1_000_000_000L;
+
+    @Test
+    void normalTicksKeepTheConfiguredInterval() {
+        run(33, 60_000);
+        assertEquals(1.0f, cadence.stretch);
+        assertEquals(33f, cadence.smoothedTickMs, 1f);
+    }
+
+    @Test
+    void sustainedLoadStretchesTheInterval() {
+        run(33, 10_000);
+        run(100, 60_000);
+        assertEquals(2.0f, cadence.stretch);
+
+        // Capped at AdaptiveMaxStretch however slow the world gets
+        run(400, 120_000);
+        assertEquals(4.0f, cadence.stretch);
+
+        run(33, 120_000);
+        assertEquals(1.0f, cadence.stretch);
+    }
+
+    @Test
+    void shortSpikeDoesNotChangeTheCadence() {
+        run(33, 10_000);
+        run(100, 500);
+        assertEquals(1.0f, cadence.stretch);
+        assertTrue(cadence.smoothedTickMs < 50f);
+    }
+
+    @Test
+    void smallDriftStaysInTheDeadBand() {
+        run(100, 60_000);
+        assertEquals(2.0f, cadence.stretch);
+
+        // 110 ms ticks target 2.2: not far enough from 2 to take a step
+        run(110, 60_000);
+        assertEquals(2.0f, cadence.stretch);
+    }
+
+    /**
+     * Feeds passes at a fixed tick time for a stretch of simulated time.
+     */
+    private void run(long tickMs, long durationMs) {
+        for (long elapsed = 0; elapsed < durationMs; elapsed += tickMs) {
+            now += tickMs * 1_000_000L;
+            cadence.update(now, cfg);
+        }
+    }
+}
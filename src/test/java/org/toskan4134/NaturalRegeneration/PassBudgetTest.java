@@ -0,0 +1,81 @@
+package org.toskan4134.NaturalRegeneration;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * How the per-tick time budget defers players and resumes with the ones it skipped,
+ * whatever order the next passes see them in.
+ */
+class PassBudgetTest {
+
+    private static final long NO_LIMIT_NANOS = 60_000_000_000L;
+
+    private final RegenState a = new RegenState(UUID.randomUUID(), "a");
+    private final RegenState b = new RegenState(UUID.randomUUID(), "b");
+    private final RegenState c = new RegenState(UUID.randomUUID(), "c");
+
+    @Test
+    void everyoneRunsWithinTheBudget() {
+        RegenerationTickSystem.PassBudget budget = new RegenerationTickSystem.PassBudget();
+        for (int pass = 0; pass < 3; pass++) {
+            budget.begin(System.nanoTime() + NO_LIMIT_NANOS);
+            assertFalse(budget.shouldDefer(a));
+            assertFalse(budget.shouldDefer(b));
+            assertFalse(budget.shouldDefer(c));
+            budget.end();
+        }
+    }
+
+    @Test
+    void spentBudgetResumesWithDeferredPlayers() {
+        RegenerationTickSystem.PassBudget budget = new RegenerationTickSystem.PassBudget();
+
+        // Budget already spent: only the first player of each pass runs
+        budget.begin(System.nanoTime() - 1L);
+        assertFalse(budget.shouldDefer(a));
+        assertTrue(budget.shouldDefer(b));
+        assertTrue(budget.shouldDefer(c));
+        budget.end();
+
+        // Reordered: a already ran in this lap and waits, c gets the pass
+        budget.begin(System.nanoTime() - 1L);
+        assertTrue(budget.shouldDefer(a));
+        assertFalse(budget.shouldDefer(c));
+        assertTrue(budget.shouldDefer(b));
+        budget.end();
+
+        budget.begin(System.nanoTime() - 1L);
+        assertTrue(budget.shouldDefer(c));
+        assertTrue(budget.shouldDefer(a));
+        assertFalse(budget.shouldDefer(b));
+        budget.end();
+
+        // Everyone ran once, so the next lap starts over
+        budget.begin(System.nanoTime() + NO_LIMIT_NANOS);
+        assertFalse(budget.shouldDefer(a));
+        assertFalse(budget.shouldDefer(b));
+        assertFalse(budget.shouldDefer(c));
+        budget.end();
+    }
+
+    @Test
+    void lapDoesNotAdvanceWhilePlayersAreBehind() {
+        RegenerationTickSystem.PassBudget budget = new RegenerationTickSystem.PassBudget();
+
+        budget.begin(System.nanoTime() - 1L);
+        assertFalse(budget.shouldDefer(a));
+        assertTrue(budget.shouldDefer(b));
+        budget.end();
+
+        // b is still owed its turn, so a keeps waiting even with time to spare
+        budget.begin(System.nanoTime() + NO_LIMIT_NANOS);
+        assertTrue(budget.shouldDefer(a));
+        assertFalse(budget.shouldDefer(b));
+        budget.end();
+    }
+}
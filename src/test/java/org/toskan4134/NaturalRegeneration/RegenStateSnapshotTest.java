@@ -0,0 +1,139 @@
+package org.toskan4134.NaturalRegeneration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Writing and reading the fixed-size records of the regeneration state file across restarts.
+ * Closing a snapshot waits for queued restores and flushes, so each step runs to completion.
+ */
+class RegenStateSnapshotTest {
+
+    private static final long HEADER_BYTES = 4L;
+    private static final long RECORD_BYTES = 36L;
+
+    @TempDir
+    Path dir;
+
+    private final long now = System.currentTimeMillis();
+
+    @Test
+    void recordsSurviveARestart() throws IOException {
+        Path file = dir.resolve("state.bin");
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        RegenStateSnapshot snapshot = new RegenStateSnapshot(file);
+        snapshot.start();
+        snapshot.stage(first, now, now + 5_000L, 0.25f);
+        snapshot.stage(second, now - 1_000L, now + 2_000L, 0.75f);
+        snapshot.close();
+        assertEquals(HEADER_BYTES + 2 * RECORD_BYTES, Files.size(file));
+
+        RegenStateSnapshot.Record record = restore(file, first);
+        assertNotNull(record);
+        assertEquals(now, record.getLastDamageTime());
+        assertEquals(now + 5_000L, record.getRegenBlockedUntil());
+        assertEquals(0.25f, record.getTimeAccumulator());
+
+        record = restore(file, second);
+        assertNotNull(record);
+        assertEquals(now - 1_000L, record.getLastDamageTime());
+        assertEquals(0.75f, record.getTimeAccumulator());
+
+        assertNull(restore(file, UUID.randomUUID()));
+    }
+
+    @Test
+    void recordsAreRewrittenInPlace() throws IOException {
+        Path file = dir.resolve("state.bin");
+        UUID player = UUID.randomUUID();
+
+        RegenStateSnapshot snapshot = new RegenStateSnapshot(file);
+        snapshot.start();
+        snapshot.stage(player, now - 10_000L, now - 5_000L, 0f);
+        snapshot.close();
+
+        snapshot = new RegenStateSnapshot(file);
+        snapshot.start();
+        snapshot.stage(player, now, now + 5_000L, 0.5f);
+        snapshot.close();
+
+        assertEquals(HEADER_BYTES + RECORD_BYTES, Files.size(file));
+        RegenStateSnapshot.Record record = restore(file, player);
+        assertNotNull(record);
+        assertEquals(now, record.getLastDamageTime());
+        assertEquals(now + 5_000L, record.getRegenBlockedUntil());
+    }
+
+    @Test
+    void stagedStateIsRestoredBeforeItIsFlushed() {
+        UUID player = UUID.randomUUID();
+        RegenStateSnapshot snapshot = new RegenStateSnapshot(dir.resolve("state.bin"));
+        snapshot.start();
+        snapshot.stage(player, now, now + 5_000L, 0f);
+        snapshot.requestRestore(player);
+        snapshot.close();
+
+        RegenStateSnapshot.Record record = snapshot.takeRestore(player);
+        assertNotNull(record);
+        assertEquals(now + 5_000L, record.getRegenBlockedUntil());
+    }
+
+    @Test
+    void expiredRecordsAreNotRestoredAndTheirSlotIsReused() throws IOException {
+        Path file = dir.resolve("state.bin");
+        UUID old = UUID.randomUUID();
+        long longAgo = now - DamageTracker.MAX_RECORD_AGE_MS - 60_000L;
+
+        RegenStateSnapshot snapshot = new RegenStateSnapshot(file);
+        snapshot.start();
+        snapshot.stage(old, longAgo, longAgo + 5_000L, 0f);
+        snapshot.close();
+
+        assertNull(restore(file, old));
+
+        UUID player = UUID.randomUUID();
+        snapshot = new RegenStateSnapshot(file);
+        snapshot.start();
+        snapshot.stage(player, now, now + 5_000L, 0f);
+        snapshot.close();
+        assertEquals(HEADER_BYTES + RECORD_BYTES, Files.size(file));
+        assertNotNull(restore(file, player));
+    }
+
+    @Test
+    void unknownFileIsStartedOver() throws IOException {
+        Path file = dir.resolve("state.bin");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+        UUID player = UUID.randomUUID();
+
+        RegenStateSnapshot snapshot = new RegenStateSnapshot(file);
+        snapshot.start();
+        snapshot.stage(player, now, now + 5_000L, 0f);
+        snapshot.close();
+
+        assertEquals(HEADER_BYTES + RECORD_BYTES, Files.size(file));
+        assertNotNull(restore(file, player));
+    }
+
+    /**
+     * Loads a player's state from the file with a fresh snapshot, as after a restart.
+     */
+    private static RegenStateSnapshot.Record restore(Path file, UUID uuid) {
+        RegenStateSnapshot snapshot = new RegenStateSnapshot(file);
+        snapshot.start();
+        snapshot.requestRestore(uuid);
+        snapshot.close();
+        return snapshot.takeRestore(uuid);
+    }
+}
@@ -0,0 +1,110 @@
+package org.toskan4134.NaturalRegeneration;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Zone lookups through the spatial grid: cell multipliers, exact checks at zone edges,
+ * zones too large for the grid, and per-world indexes.
+ */
+class RegenZonesTest {
+
+    private static final float CELL = RegenConfig.DEFAULT_ZONE_CELL_SIZE;
+
+    private final RegenZones zones = new RegenZones();
+    private final RegenState state = new RegenState(UUID.randomUUID(), "player");
+
+    @Test
+    void noZonesMeansNoMultiplier() {
+        assertTrue(zones.isEmpty());
+        assertEquals(1.0f, multiplier("default", 10, 64, 10));
+    }
+
+    @Test
+    void cellsInsideAZoneArePrecomputed() {
+        zones.register(new RegenZones.Zone("spawn", 0, 0, 100, 100, 2.0f));
+
+        RegenZones.Index index = zones.getIndex("default");
+        RegenZones.Cell inside = index.cells.get(index.key(40, 40));
+        assertEquals(2.0f, inside.multiplier);
+        // The cell from 96 to 128 is only partly covered and checks the zone bounds
+        assertTrue(Float.isNaN(index.cells.get(index.key(100, 100)).multiplier));
+
+        assertEquals(2.0f, multiplier("default", 40, 64, 40));
+        assertEquals(2.0f, multiplier("default", 100, 64, 100));
+        assertEquals(1.0f, multiplier("default", 100.5, 64, 100));
+        assertEquals(1.0f, multiplier("default", -1, 64, 40));
+    }
+
+    @Test
+    void overlappingZonesMultiply() {
+        zones.register(new RegenZones.Zone("town", -64, -64, 64, 64, 2.0f));
+        zones.register(new RegenZones.Zone("inn", -10, -10, 10, 10, 1.5f));
+
+        assertEquals(3.0f, multiplier("default", 0, 64, 0));
+        assertEquals(2.0f, multiplier("default", -40, 64, -40));
+        assertEquals(2, zones.size());
+    }
+
+    @Test
+    void heightLimitsAreChecked() {
+        zones.register(new RegenZones.Zone("cave", 0, 0, 0, CELL * 4, 40, CELL * 4, 0f));
+
+        assertEquals(0f, multiplier("default", 40, 20, 40));
+        assertEquals(1.0f, multiplier("default", 40, 80, 40));
+    }
+
+    @Test
+    void zonesTooLargeForTheGridStillApply() {
+        zones.register(new RegenZones.Zone("continent", -1_000_000, -1_000_000, 1_000_000, 1_000_000, 0.5f));
+
+        RegenZones.Index index = zones.getIndex("default");
+        assertEquals(1, index.large.length);
+        assertTrue(index.cells.isEmpty());
+        assertEquals(0.5f, multiplier("default", 123_456, 64, -654_321));
+    }
+
+    @Test
+    void worldZonesOnlyApplyInTheirWorld() {
+        zones.register(new RegenZones.Zone("arena", "Arena", 0, 0, 100, 100, 0f));
+        zones.register(new RegenZones.Zone("everywhere", -200, -200, 200, 200, 2.0f));
+
+        // World names are matched case-insensitively; zones without a world apply in all of them
+        assertEquals(0f, multiplier("arena", 40, 64, 40));
+        assertEquals(2.0f, multiplier("default", 40, 64, 40));
+        assertSame(zones.getIndex("ARENA"), zones.getIndex("arena"));
+        assertNotSame(zones.getIndex("arena"), zones.getIndex("default"));
+    }
+
+    @Test
+    void cachedCellFollowsZoneChanges() {
+        zones.register(new RegenZones.Zone("spawn", 0, 0, 100, 100, 2.0f));
+        assertEquals(2.0f, multiplier("default", 40, 64, 40));
+
+        // Same cell, but the index was rebuilt: the player's cached cell is dropped
+        assertTrue(zones.unregister("spawn"));
+        zones.register(new RegenZones.Zone("spawn", 0, 0, 100, 100, 3.0f));
+        assertEquals(3.0f, multiplier("default", 40, 64, 40));
+    }
+
+    @Test
+    void builtGridKeysNegativeCoordinates() {
+        RegenZones.Index index = RegenZones.build(List.of(new RegenZones.Zone("south", -100, -100, -1, -1, 2.0f)), CELL);
+
+        assertEquals(1, index.zoneCount);
+        assertEquals(2.0f, index.cells.get(index.key(-40, -40)).multiplier);
+        assertNull(index.cells.get(index.key(1, 1)));
+    }
+
+    private float multiplier(String world, double x, double y, double z) {
+        return zones.getMultiplier(state, world, x, y, z);
+    }
+}